@@ -0,0 +1,77 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory stand-ins for websocket sessions, so the SDK can be driven without a server.
+ */
+class BenchmarkSessions {
+
+    // a session that discards everything sent to it
+    static Session newSession() {
+        return newSession(msg -> { });
+    }
+
+    // a session that hands every outbound message to the given sink
+    static Session newSession(Consumer<String> sink) {
+        RemoteEndpoint.Basic remote = (RemoteEndpoint.Basic) Proxy.newProxyInstance(
+                BenchmarkSessions.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.Basic.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "sendObject":
+                        case "sendText":
+                            sink.accept(String.valueOf(args[0]));
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+        Map<String, Object> userProperties = new HashMap<>();
+        return (Session) Proxy.newProxyInstance(
+                BenchmarkSessions.class.getClassLoader(),
+                new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBasicRemote":
+                            return remote;
+                        case "getUserProperties":
+                            return userProperties;
+                        case "isOpen":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "BenchmarkSession@" + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,71 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to start a workflow on a fleet of devices through HTTP triggers, against a
+ * stand-in server on localhost that takes 20 ms to answer each one, for different
+ * limits on how many triggers are in flight at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkTriggerBenchmark {
+
+    @Param({"1000"})
+    public int devices;
+
+    @Param({"1", "16", "64"})
+    public int maxInFlight;
+
+    private LocalRelayServer server;
+    private RelayHttpClient client;
+    private List<WorkflowInvocation> invocations;
+    private BulkTrigger bulkTrigger;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LocalRelayServer();
+        server.setResponseDelayMillis(20);
+        client = server.newClient();
+        List<String> targets = new ArrayList<>(devices);
+        for (int i = 0; i < devices; i++) {
+            targets.add("urn:relay-resource:name:device:" + i);
+        }
+        invocations = WorkflowInvocation.forEachTarget("wf_muster", "subscriber", "990007560023456", targets, null);
+        bulkTrigger = BulkTrigger.newBuilder().maxInFlight(maxInFlight).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public BulkTriggerStats triggerFleet() {
+        return client.triggerWorkflowsAsync(LocalRelayServer.ACCESS_TOKEN, "refresh", "client", invocations,
+                bulkTrigger, outcome -> { }).join();
+    }
+
+}
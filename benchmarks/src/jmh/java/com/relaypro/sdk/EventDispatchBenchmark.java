@@ -0,0 +1,115 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.ButtonEvent;
+import com.relaypro.sdk.types.StartEvent;
+import com.relaypro.sdk.types.TimerEvent;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of calling a workflow's event callback once the event has been decoded:
+ * the switch on {@link EventType} the SDK uses, against the reflective lookup it
+ * used to do for every event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    @Param({"wf_api_button_event", "wf_api_timer_event", "wf_api_prompt_event"})
+    public String eventType;
+
+    private Session session;
+    private Relay relay;
+    private MessageWrapper message;
+    private long handled;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Relay.addWorkflow("dispatch", new Workflow() {
+            @Override
+            public void onStart(Relay relay, StartEvent startEvent) {
+                EventDispatchBenchmark.this.relay = relay;
+                started.countDown();
+            }
+
+            @Override
+            public void onButton(Relay relay, ButtonEvent buttonEvent) {
+                handled++;
+            }
+
+            @Override
+            public void onTimer(Relay relay, TimerEvent timerEvent) {
+                handled++;
+            }
+        });
+        session = BenchmarkSessions.newSession();
+        Relay.startWorkflow(session, "dispatch");
+        Relay.receiveMessage(session, "{\"_type\":\"wf_api_start_event\",\"trigger\":{\"type\":\"phrase\",\"args\":{}}}");
+        started.await();
+
+        message = MessageWrapper.parseMessage("{\"_type\":\"" + eventType + "\",\"source_uri\":\"urn:device\","
+                + "\"button\":\"action\",\"taps\":\"single\",\"type\":\"started\",\"id\":\"0123456789abcdef\"}");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Relay.stopWorkflow(session, "benchmark");
+    }
+
+    @Benchmark
+    public long switchDispatch() {
+        RelayUtils.invokeEventCallback(message, relay);
+        return handled;
+    }
+
+    @Benchmark
+    public long reflectiveDispatch() {
+        invokeReflectively(message, relay);
+        return handled;
+    }
+
+    // the dispatch the SDK used before it switched on EventType
+    private static void invokeReflectively(MessageWrapper messageWrapper, Relay relay) {
+        String methodName = "on" + toCamelCase(messageWrapper.type);
+        try {
+            Object event = messageWrapper.eventObject();
+            Method method = Workflow.class.getMethod(methodName, Relay.class, event.getClass());
+            method.invoke(relay.workflow, relay, event);
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toCamelCase(String snakeCase) {
+        String[] matches = snakeCase.split("_");
+        StringBuilder out = new StringBuilder();
+        for (String match : matches) {
+            out.append(Character.toUpperCase(match.charAt(0))).append(match.substring(1));
+        }
+        return out.toString();
+    }
+
+}
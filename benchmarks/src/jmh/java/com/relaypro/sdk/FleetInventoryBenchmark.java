@@ -0,0 +1,97 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up a device in a loaded {@link FleetInventory}, by IMEI, name and
+ * group, against fetching its record from a stand-in for the device API on localhost,
+ * which is what every lookup cost before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetInventoryBenchmark {
+
+    private static final int DEVICES = 3000;
+
+    private LocalRelayServer server;
+    private RelayHttpClient client;
+    private FleetInventory inventory;
+    private String[] imeis;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LocalRelayServer();
+        client = server.newClient();
+        List<String> all = new ArrayList<>(DEVICES);
+        imeis = new String[DEVICES];
+        names = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            imeis[i] = String.valueOf(990007560000000L + i);
+            names[i] = "device-" + imeis[i];
+            all.add(imeis[i]);
+        }
+        inventory = FleetInventory.newBuilder(LocalRelayServer.ACCESS_TOKEN, "refresh", "client", "subscriber")
+                .httpClient(client).maxInFlight(64).build();
+        inventory.loadAsync(all).join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        inventory.close();
+        server.close();
+    }
+
+    private int nextIndex() {
+        int index = next++;
+        if (next == DEVICES) {
+            next = 0;
+        }
+        return index;
+    }
+
+    @Benchmark
+    public DeviceRecord getByImei() {
+        return inventory.get(imeis[nextIndex()]);
+    }
+
+    @Benchmark
+    public DeviceRecord findByName() {
+        return inventory.findByName(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<DeviceRecord> getGroupMembers() {
+        return inventory.getGroupMembers("group-" + (nextIndex() % 10));
+    }
+
+    @Benchmark
+    public Map<String, String> fetchDevice() {
+        return client.fetchDeviceAsync(LocalRelayServer.ACCESS_TOKEN, "refresh", "client", "subscriber", imeis[nextIndex()]).join();
+    }
+
+}
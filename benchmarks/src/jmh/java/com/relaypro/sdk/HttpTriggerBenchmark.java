@@ -0,0 +1,61 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sending an HTTP trigger to a stand-in server on localhost: with a new
+ * client for every request, as the SDK used to build, against the one shared
+ * client that keeps its connection open. Over a real network with TLS, the
+ * difference grows by a handshake per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpTriggerBenchmark {
+
+    @Param({"perCall", "shared"})
+    public String client;
+
+    private LocalRelayServer server;
+    private RelayHttpClient shared;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LocalRelayServer();
+        shared = server.newClient();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("connections opened: " + server.connectionCount() + " for " + server.requestCount() + " requests");
+        server.close();
+    }
+
+    @Benchmark
+    public Map<String, String> triggerWorkflow() {
+        RelayHttpClient httpClient = "shared".equals(client) ? shared : server.newClient();
+        return httpClient.triggerWorkflowAsync(LocalRelayServer.ACCESS_TOKEN, "refresh", "client", "wf_benchmark",
+                "subscriber", "990007560023456", new String[] {"urn:device"}, null).join();
+    }
+
+}
@@ -0,0 +1,108 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from a node starting up to it answering its first device lookup, with the
+ * fleet fetched from a stand-in for the device API on localhost that takes 20 ms to
+ * answer each request, against mapping the snapshot file saved before the restart.
+ * The device looked up is the last one loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InventoryColdStartBenchmark {
+
+    @Param({"3000"})
+    public int devices;
+
+    @Param({"none", "mapped"})
+    public String snapshot;
+
+    private LocalRelayServer server;
+    private RelayHttpClient client;
+    private List<String> imeis;
+    private Path snapshotFile;
+    private FleetInventory inventory;
+    private CompletableFuture<Void> loading;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new LocalRelayServer();
+        client = server.newClient();
+        imeis = new ArrayList<>(devices);
+        for (int i = 0; i < devices; i++) {
+            imeis.add(String.valueOf(990007560000000L + i));
+        }
+        snapshotFile = Files.createTempDirectory("relay-inventory").resolve("inventory.snapshot");
+        try (FleetInventory saved = newInventory(snapshotFile)) {
+            saved.loadAsync(imeis).join();
+        }
+        server.setResponseDelayMillis(20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(snapshotFile.getParent());
+    }
+
+    // lets the last run's fetches finish before the next run starts
+    @TearDown(Level.Invocation)
+    public void stopInventory() {
+        inventory.getSnapshotRefresh().join();
+        if (loading != null) {
+            loading.join();
+        }
+        inventory.close();
+    }
+
+    private FleetInventory newInventory(Path file) {
+        return FleetInventory.newBuilder(LocalRelayServer.ACCESS_TOKEN, "refresh", "client", "subscriber")
+                .httpClient(client).maxInFlight(64).snapshotFile(file).build();
+    }
+
+    @Benchmark
+    public DeviceRecord firstLookup() throws InterruptedException {
+        String target = imeis.get(imeis.size() - 1);
+        if ("mapped".equals(snapshot)) {
+            inventory = newInventory(snapshotFile);
+            return inventory.get(target);
+        }
+        inventory = newInventory(null);
+        loading = inventory.loadAsync(imeis);
+        DeviceRecord record;
+        while ((record = inventory.get(target)) == null) {
+            Thread.sleep(1);
+        }
+        return record;
+    }
+
+}
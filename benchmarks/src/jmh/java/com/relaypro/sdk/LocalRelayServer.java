@@ -0,0 +1,188 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A stand-in for the Relay server's HTTP API and auth server on localhost, so that
+ * the SDK's HTTP calls can be measured without a network or an account. Answers
+ * HTTP triggers, device fetches and token refreshes, turns away requests bearing
+ * an access token it did not issue or that has expired with a 401, and counts the
+ * connections clients open to it and how many of their requests it has in hand
+ * at once.  Triggers of a workflow whose id starts with "wf_fail" get a 500.
+ */
+class LocalRelayServer implements AutoCloseable {
+
+    // a token that never expires, for clients that do not need to refresh
+    static final String ACCESS_TOKEN = "local-access-token";
+
+    static {
+        // otherwise the server's separate writes of headers and body wait on the client's delayed ack,
+        // adding 40 ms to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder tokenRefreshes = new LongAdder();
+    private final LongAdder unauthorized = new LongAdder();
+    private final Map<String, Long> issuedTokens = new ConcurrentHashMap<>();     // token to when it expires
+    private final AtomicInteger tokenCounter = new AtomicInteger();
+    private final Map<String, String> deviceNames = new ConcurrentHashMap<>();
+    private volatile long tokenLifetimeSeconds = 3600;
+    private volatile long responseDelayMillis = 0;
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    LocalRelayServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        server.createContext("/ibot/workflow/", exchange -> {
+            if (exchange.getRequestURI().getPath().startsWith("/ibot/workflow/wf_fail")) {
+                respond(exchange, 500, "{\"error\":\"internal\"}");
+            } else {
+                authorized(exchange, "{\"started\":true}");
+            }
+        });
+        server.createContext("/relaypro/api/v1/device/", exchange -> {
+            String imei = exchange.getRequestURI().getPath().substring("/relaypro/api/v1/device/".length());
+            authorized(exchange, deviceJson(imei));
+        });
+        server.createContext("/oauth2/token", exchange -> {
+            tokenRefreshes.increment();
+            long lifetime = tokenLifetimeSeconds;
+            String token = "local-access-token-" + tokenCounter.incrementAndGet();
+            issuedTokens.put(token, System.nanoTime() + TimeUnit.SECONDS.toNanos(lifetime));
+            respond(exchange, 200, "{\"access_token\":\"" + token + "\",\"expires_in\":" + lifetime + "}");
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    URI uri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    // a client configured to send everything to this server
+    RelayHttpClient newClient() {
+        return RelayHttpClient.newBuilder().serverUri(uri()).authUri(uri()).build();
+    }
+
+    // a device record: named after its IMEI unless renamed, and in one of ten groups by its last digit
+    private String deviceJson(String imei) {
+        String name = deviceNames.getOrDefault(imei, "device-" + imei);
+        String group = "group-" + (imei.isEmpty() ? '0' : imei.charAt(imei.length() - 1));
+        return "{\"id\":\"" + imei + "\",\"name\":\"" + name + "\",\"groups\":[{\"name\":\"" + group
+                + "\"}],\"battery\":87,\"type\":\"relay2\"}";
+    }
+
+    // changes the name the device's record is returned with
+    void renameDevice(String imei, String name) {
+        deviceNames.put(imei, name);
+    }
+
+    private void authorized(HttpExchange exchange, String body) throws IOException {
+        if (!valid(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            unauthorized.increment();
+            respond(exchange, 401, "{\"error\":\"invalid_token\"}");
+        } else {
+            respond(exchange, 200, body);
+        }
+    }
+
+    private boolean valid(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        String token = authorization.substring("Bearer ".length());
+        if (ACCESS_TOKEN.equals(token)) {
+            return true;
+        }
+        Long expiresAt = issuedTokens.get(token);
+        return expiresAt != null && expiresAt - System.nanoTime() > 0;
+    }
+
+    // how long the tokens issued from now on last
+    void setTokenLifetimeSeconds(long tokenLifetimeSeconds) {
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        requests.increment();
+        connections.add(exchange.getRemoteAddress());
+        int now = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(now, Math::max);
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+            long delay = responseDelayMillis;
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrent.decrementAndGet();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // how long the server takes to answer each request, as a stand-in for network and server time
+    void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    // the most requests the server has had in hand at once
+    int maxConcurrentRequests() {
+        return maxConcurrent.get();
+    }
+
+    // how many connections clients have opened, told apart by their local port
+    int connectionCount() {
+        return connections.size();
+    }
+
+    long requestCount() {
+        return requests.sum();
+    }
+
+    long tokenRefreshCount() {
+        return tokenRefreshes.sum();
+    }
+
+    // how many requests were turned away for their access token
+    long unauthorizedCount() {
+        return unauthorized.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+}
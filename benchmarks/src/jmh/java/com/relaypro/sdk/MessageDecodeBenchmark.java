@@ -0,0 +1,188 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.*;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking in each type of event the server sends: decoding its envelope with
+ * {@link MessageWrapper#parseMessage}, then decoding its body, then handing it to a
+ * workflow that has a callback for every event with {@link RelayUtils#invokeEventCallback}.
+ * Run once for every {@link EventType}, with a message shaped like the server's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDecodeBenchmark {
+
+    private static final String SOURCE = "\"source_uri\":\"urn:relay-resource:name:device:Alice\"";
+    private static final String CALL = "\"call_id\":\"0123456789abcdef\",\"direction\":\"inbound\",\"device_id\":\"990007560023456\","
+            + "\"device_name\":\"Alice\",\"uri\":\"urn:relay-resource:name:device:Bob\",\"onnet\":\"true\","
+            + "\"start_time_epoch\":\"1650000000\"";
+
+    // no values means every EventType
+    @Param
+    public EventType eventType;
+
+    private Session session;
+    private Relay relay;
+    private String message;
+    private long handled;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Relay.addWorkflow("decode", new EveryEventWorkflow() {
+            @Override
+            public void onStart(Relay relay, StartEvent startEvent) {
+                if (MessageDecodeBenchmark.this.relay == null) {
+                    MessageDecodeBenchmark.this.relay = relay;
+                    started.countDown();
+                }
+                handled++;
+            }
+        });
+        session = BenchmarkSessions.newSession();
+        Relay.startWorkflow(session, "decode");
+        Relay.receiveMessage(session, message(EventType.Start));
+        started.await();
+
+        message = message(eventType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Relay.stopWorkflow(session, "benchmark");
+    }
+
+    @Benchmark
+    public MessageWrapper parseMessage() {
+        return MessageWrapper.parseMessage(message);
+    }
+
+    @Benchmark
+    public Object parseAndDecode() {
+        return MessageWrapper.parseMessage(message).eventObject();
+    }
+
+    @Benchmark
+    public long parseAndDispatch() {
+        RelayUtils.invokeEventCallback(MessageWrapper.parseMessage(message), relay);
+        return handled;
+    }
+
+    // a message of the type, with the fields the server sends with it
+    private static String message(EventType type) {
+        String body;
+        switch (type) {
+            case Start:
+                body = "\"trigger\":{\"type\":\"phrase\",\"args\":{\"phrase\":\"hello\"," + SOURCE + "}}";
+                break;
+            case Stop:
+                body = "\"reason\":\"normal\"";
+                break;
+            case InteractionLifecycle:
+                body = "\"type\":\"started\",\"reason\":null," + SOURCE;
+                break;
+            case Prompt:
+                body = "\"id\":\"0123456789abcdef\",\"type\":\"stopped\"";
+                break;
+            case Timer:
+                body = "\"name\":{\"name\":\"reminder\"}";
+                break;
+            case TimerFired:
+                body = "\"name\":\"reminder\"";
+                break;
+            case Button:
+                body = SOURCE + ",\"button\":\"action\",\"taps\":\"single\"";
+                break;
+            case Notification:
+                body = SOURCE + ",\"event\":\"ack_event\",\"name\":\"spill\","
+                        + "\"notification_state\":{\"acknowledged\":[\"Alice\"],\"created\":[\"Alice\",\"Bob\"],\"timed_out\":[]}";
+                break;
+            case Sms:
+                body = "\"id\":\"0123456789abcdef\",\"event\":\"delivered\"";
+                break;
+            case Speech:
+                body = "\"request_id\":\"request\",\"text\":\"hello world\",\"audio\":\"\",\"lang\":\"en-US\"";
+                break;
+            case Incident:
+                body = "\"type\":\"resolved\",\"incident_id\":\"0123456789abcdef\",\"reason\":\"resolved\"";
+                break;
+            case CallStart:
+                body = "\"uri\":\"urn:relay-resource:name:device:Bob\"";
+                break;
+            case CallDisconnected:
+            case CallFailed:
+                body = CALL + ",\"reason\":\"normal\"";
+                break;
+            case PlayInboxMessages:
+                body = "\"action\":\"started\"";
+                break;
+            default:
+                body = CALL;
+                break;
+        }
+        return "{\"_type\":\"" + type.value() + "\"," + body + "}";
+    }
+
+    // overrides every callback, so that every event gets as far as the workflow
+    private class EveryEventWorkflow extends Workflow {
+        @Override
+        public void onStop(Relay relay, StopEvent stopEvent) { handled++; }
+        @Override
+        public void onInteractionLifecycle(Relay relay, InteractionLifecycleEvent lifecycleEvent) { handled++; }
+        @Override
+        public void onPrompt(Relay relay, PromptEvent promptEvent) { handled++; }
+        @Override
+        public void onTimer(Relay relay, TimerEvent timerEvent) { handled++; }
+        @Override
+        public void onTimerFired(Relay relay, TimerFiredEvent timerFiredEvent) { handled++; }
+        @Override
+        public void onButton(Relay relay, ButtonEvent buttonEvent) { handled++; }
+        @Override
+        public void onNotification(Relay relay, NotificationEvent notificationEvent) { handled++; }
+        @Override
+        public void onSms(Relay relay, SmsEvent smsEvent) { handled++; }
+        @Override
+        public void onSpeech(Relay relay, SpeechEvent speechEvent) { handled++; }
+        @Override
+        public void onIncident(Relay relay, IncidentEvent incidentEvent) { handled++; }
+        @Override
+        public void onCallStartRequest(Relay relay, CallStartEvent callStartEvent) { handled++; }
+        @Override
+        public void onCallReceived(Relay relay, CallReceivedEvent callReceivedEvent) { handled++; }
+        @Override
+        public void onCallRinging(Relay relay, CallRingingEvent callRingingEvent) { handled++; }
+        @Override
+        public void onCallProgressing(Relay relay, CallProgressingEvent callProgressingEvent) { handled++; }
+        @Override
+        public void onCallConnected(Relay relay, CallConnectedEvent callConnectedEvent) { handled++; }
+        @Override
+        public void onCallDisconnected(Relay relay, CallDisconnectedEvent callDisconnectedEvent) { handled++; }
+        @Override
+        public void onCallFailed(Relay relay, CallFailedEvent callFailedEvent) { handled++; }
+        @Override
+        public void onPlayInboxMessage(Relay relay, PlayInboxMessagesEvent playInboxMessagesEvent) { handled++; }
+    }
+
+}
@@ -0,0 +1,77 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link RelayUri} functions workflows call on most events: building
+ * device, group and interaction URNs, and parsing names and ids back out of them.
+ * The names contain a space, so they go through URL encoding as real names do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelayUriBenchmark {
+
+    private final String deviceName = "Alice Smith";
+    private final String groupName = "Night Shift";
+    private final String deviceUri = RelayUri.deviceName(deviceName);
+    private final String deviceIdUri = RelayUri.deviceId("990007560023456");
+    private final String groupUri = RelayUri.groupName(groupName);
+    private final String interactionUri = "urn:relay-resource:name:interaction:hello?device=urn%3Arelay-resource%3Aname%3Adevice%3AAlice%20Smith";
+
+    @Benchmark
+    public String buildDeviceName() {
+        return RelayUri.deviceName(deviceName);
+    }
+
+    @Benchmark
+    public String buildGroupMember() {
+        return RelayUri.groupMember(groupName, deviceName);
+    }
+
+    @Benchmark
+    public String buildInteractionName() {
+        return RelayUri.interactionName("hello");
+    }
+
+    @Benchmark
+    public String parseDeviceName() {
+        return RelayUri.parseDeviceName(deviceUri);
+    }
+
+    @Benchmark
+    public String parseDeviceId() {
+        return RelayUri.parseDeviceId(deviceIdUri);
+    }
+
+    @Benchmark
+    public String parseDeviceNameFromInteraction() {
+        return RelayUri.parseDeviceName(interactionUri);
+    }
+
+    @Benchmark
+    public String parseGroupName() {
+        return RelayUri.parseGroupName(groupUri);
+    }
+
+    @Benchmark
+    public String parseInteraction() {
+        return RelayUri.parseInteraction(interactionUri);
+    }
+
+}
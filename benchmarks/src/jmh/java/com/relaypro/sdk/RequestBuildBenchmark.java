@@ -0,0 +1,158 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceField;
+import com.relaypro.sdk.types.DeviceInfoQueryType;
+import com.relaypro.sdk.types.LanguageType;
+import com.relaypro.sdk.types.LedEffect;
+import com.relaypro.sdk.types.LedInfo;
+import com.relaypro.sdk.types.TimeoutType;
+import com.relaypro.sdk.types.TimerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Map.entry;
+
+/**
+ * Cost of building and encoding each type of request, with the parameters the
+ * {@link Relay} method that sends it passes to {@link RelayUtils#buildRequest}.
+ * Run once for every {@link RequestType}, so results can be compared type by type
+ * between SDK versions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildBenchmark {
+
+    private static final String TARGET = "urn:relay-resource:name:device:Alice";
+    private static final String GROUP = "urn:relay-resource:name:group:Cleaners";
+
+    // no values means every RequestType
+    @Param
+    public RequestType requestType;
+
+    private final RequestEncoder encoder = new RequestEncoder();
+    private final RequestIds requestIds = new RequestIds();
+    private final LedInfo ledInfo = new LedInfo();
+
+    {
+        ledInfo.setColor("ring", "00ff00");
+        ledInfo.setCount(3);
+    }
+
+    @Benchmark
+    public RelayRequest build() {
+        RelayRequest request = buildRequest(requestType);
+        request.id = requestIds.next();
+        return request;
+    }
+
+    @Benchmark
+    public String buildAndEncode() throws IOException {
+        return encoder.encode(build());
+    }
+
+    private RelayRequest buildRequest(RequestType type) {
+        switch (type) {
+            case StartInteraction:
+                return RelayUtils.buildRequest(type, TARGET, entry("name", "benchmark"), entry("options", new Object()));
+            case Say:
+                return RelayUtils.buildRequest(type, TARGET,
+                        entry("text", "Hello world, press the button when ready"),
+                        entry("lang", LanguageType.English.value()));
+            case Listen:
+                return RelayUtils.buildRequest(type, TARGET,
+                        entry("request_id", "request"),
+                        entry("phrases", new String[]{"yes", "no"}),
+                        entry("transcribe", true),
+                        entry("timeout", 60),
+                        entry("alt_lang", LanguageType.English.value()));
+            case Play:
+                return RelayUtils.buildRequest(type, TARGET, entry("filename", "relay-static://ding"));
+            case StopPlayback:
+                return RelayUtils.buildRequest(type, TARGET, entry("ids", new String[]{"0123456789abcdef"}));
+            case SetTimer:
+                return RelayUtils.buildRequest(type,
+                        entry("type", TimerType.TIMEOUT.value()),
+                        entry("name", "reminder"),
+                        entry("timeout", 30L),
+                        entry("timeout_type", TimeoutType.SECS.value()));
+            case ClearTimer:
+            case UnsetVar:
+                return RelayUtils.buildRequest(type, entry("name", "reminder"));
+            case StartTimer:
+                return RelayUtils.buildRequest(type, entry("timeout", 60));
+            case Translate:
+                return RelayUtils.buildRequest(type,
+                        entry("text", "Hello world"),
+                        entry("from_lang", LanguageType.English.value()),
+                        entry("to_lang", LanguageType.German.value()));
+            case PlaceCall:
+                return RelayUtils.buildRequest(type, TARGET, entry("uri", "urn:relay-resource:name:device:Bob"));
+            case AnswerCall:
+            case HangupCall:
+                return RelayUtils.buildRequest(type, TARGET, entry("call_id", "0123456789abcdef"));
+            case CreateIncident:
+                return RelayUtils.buildRequest(type, entry("type", "fall"), entry("originator_uri", TARGET));
+            case ResolveIncident:
+                return RelayUtils.buildRequest(type, entry("incident_id", "0123456789abcdef"), entry("reason", "resolved"));
+            case LogAnalytics:
+                return RelayUtils.buildRequest(type,
+                        entry("content", "button pressed"),
+                        entry("content_type", "text/plain"),
+                        entry("category", "benchmark"),
+                        entry("device_uri", TARGET));
+            case SetLeds:
+                return Relay.ledsRequest(TARGET, LedEffect.FLASH, ledInfo.ledMap);
+            case Vibrate:
+                return RelayUtils.buildRequest(type, TARGET, entry("pattern", new int[]{100, 500, 500, 500, 500, 500}));
+            case SetVar:
+                return RelayUtils.buildRequest(type, entry("name", "count"), entry("value", "42"));
+            case GetVar:
+                return RelayUtils.buildRequest(type, entry("name", "count"), entry("value", "0"));
+            case SendNotification:
+                return Relay.notificationRequest(GROUP, TARGET, "alert", "Spill in aisle 3", "spill");
+            case GroupQuery:
+                return RelayUtils.buildRequest(type, entry("query", "is_member"), entry("group_uri", GROUP));
+            case GetDeviceInfo:
+                return RelayUtils.buildRequest(type, TARGET,
+                        entry("query", DeviceInfoQueryType.Battery.value()),
+                        entry("refresh", false));
+            case SetChannel:
+                return RelayUtils.buildRequest(type, TARGET,
+                        entry("channel_name", "Cleaners"),
+                        entry("suppress_tts", false),
+                        entry("disable_home_channel", false));
+            case SetDeviceInfo:
+                return RelayUtils.buildRequest(type, TARGET,
+                        entry("field", DeviceField.Label.value()),
+                        entry("value", "Alice"));
+            case SetUserProfile:
+                return RelayUtils.buildRequest(type, TARGET, entry("username", "alice"), entry("force", true));
+            case SetHomeChannelState:
+                return RelayUtils.buildRequest(type, TARGET, entry("enabled", true));
+            case StopTimer:
+            case Terminate:
+                return RelayUtils.buildRequest(type);
+            default:
+                // EndInteraction, PlayInboxMessages, InboxCount
+                return RelayUtils.buildRequest(type, TARGET);
+        }
+    }
+
+}
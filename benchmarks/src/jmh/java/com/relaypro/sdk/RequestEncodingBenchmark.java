@@ -0,0 +1,111 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.relaypro.sdk.types.LedEffect;
+import com.relaypro.sdk.types.LedInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Map.entry;
+
+/**
+ * Cost of building and encoding a typical request: the {@link RequestEncoder} the SDK
+ * uses, against the map-and-Gson encoding it used before. Run with the gc profiler
+ * (enabled in build.gradle), gc.alloc.rate.norm gives the bytes allocated per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestEncodingBenchmark {
+
+    private static final Gson legacyGson = new GsonBuilder().serializeNulls().create();
+    private static final String TARGET = "urn:relay-resource:name:device:Alice";
+
+    private final RequestEncoder encoder = new RequestEncoder();
+    private final RequestIds requestIds = new RequestIds();
+    private final LedInfo ledInfo = new LedInfo();
+
+    {
+        ledInfo.setColor("ring", "00ff00");
+        ledInfo.setCount(3);
+    }
+
+    @Benchmark
+    public String sayEncoder() throws IOException {
+        RelayRequest request = RelayUtils.buildRequest(RequestType.Say, TARGET,
+                entry("text", "Hello world, press the button when ready"),
+                entry("lang", "en-US")
+        );
+        request.id = requestIds.next();
+        return encoder.encode(request);
+    }
+
+    @Benchmark
+    public String sayLegacy() {
+        return legacyEncode(legacyBuildRequest(RequestType.Say, TARGET,
+                entry("text", "Hello world, press the button when ready"),
+                entry("lang", "en-US")
+        ));
+    }
+
+    @Benchmark
+    public String setLedsEncoder() throws IOException {
+        RelayRequest request = Relay.ledsRequest(TARGET, LedEffect.FLASH, ledInfo.ledMap);
+        request.id = requestIds.next();
+        return encoder.encode(request);
+    }
+
+    @Benchmark
+    public String setLedsLegacy() {
+        return legacyEncode(legacyBuildRequest(RequestType.SetLeds, TARGET,
+                entry("effect", LedEffect.FLASH.value()),
+                entry("args", ledInfo.ledMap)
+        ));
+    }
+
+    // the request building and encoding the SDK did before RequestEncoder
+    @SafeVarargs
+    private static Map<String, Object> legacyBuildRequest(RequestType type, String sourceUri, Map.Entry<String, Object>... params) {
+        Map<String, Object> map = Map.ofEntries(
+                entry("_id", RequestIdBenchmark.legacyMakeId()),
+                entry("_type", type.value())
+        );
+        // copied by hand, as handing the generic array on to Map.ofEntries draws a varargs warning
+        Map<String, Object> paramsMap = new HashMap<>();
+        for (Map.Entry<String, Object> param : params) {
+            paramsMap.put(param.getKey(), param.getValue());
+        }
+        Map<String, Object> ret = new HashMap<>(paramsMap);
+        ret.putAll(map);
+        ret.putAll(paramsMap);
+        ret.put("_target", RelayUtils.makeTarget(sourceUri));
+        return ret;
+    }
+
+    private static String legacyEncode(Map<String, Object> message) {
+        String msgJson = legacyGson.toJson(message);
+        if (msgJson.contains("\\u003d")) {
+            msgJson = msgJson.replace("\\u003d", "=");
+        }
+        return msgJson;
+    }
+
+}
@@ -0,0 +1,57 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of making a request id with several sessions making requests at once: each
+ * session's {@link RequestIds}, against the single shared Random the SDK used before.
+ * Each benchmark thread stands in for one session.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RequestIdBenchmark {
+
+    private static final Random legacyRandom = new Random();
+
+    private final RequestIds requestIds = new RequestIds();
+
+    @Benchmark
+    public String requestIds() {
+        return requestIds.next();
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyMakeId();
+    }
+
+    // the id generation the SDK used before RequestIds
+    static String legacyMakeId() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            int num = legacyRandom.nextInt(16);
+            s.append(Integer.toHexString(num));
+        }
+        return s.toString();
+    }
+
+}
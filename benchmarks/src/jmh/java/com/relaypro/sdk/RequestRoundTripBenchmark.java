@@ -0,0 +1,96 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.StartEvent;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the SDK's side of a say and a listen: encoding the request, correlating the
+ * response and the prompt or speech event that follows it, and handing the result
+ * back to the caller. The stand-in server answers inline from the send, so no time
+ * is spent waiting on the network, and gc.alloc.rate.norm is the allocation per request.
+ * Run with and without {@link InMemoryRelayMetrics} to see what measuring costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestRoundTripBenchmark {
+
+    private static final String TARGET = "urn:relay-resource:name:device:Alice";
+
+    @Param({"none", "inMemory"})
+    public String metrics;
+
+    private Session session;
+    private Relay relay;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        Relay.setMetrics("inMemory".equals(metrics) ? new InMemoryRelayMetrics() : RelayMetrics.NOOP);
+        CountDownLatch started = new CountDownLatch(1);
+        Relay.addWorkflow("roundtrip", new Workflow() {
+            @Override
+            public void onStart(Relay relay, StartEvent startEvent) {
+                RequestRoundTripBenchmark.this.relay = relay;
+                started.countDown();
+            }
+        });
+        session = BenchmarkSessions.newSession(this::reply);
+        Relay.startWorkflow(session, "roundtrip");
+        Relay.receiveMessage(session, "{\"_type\":\"wf_api_start_event\",\"trigger\":{\"type\":\"phrase\",\"args\":{}}}");
+        started.await();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Relay.stopWorkflow(session, "benchmark");
+        Relay.setMetrics(RelayMetrics.NOOP);
+    }
+
+    @Benchmark
+    public String say() {
+        return relay.say(TARGET, "hello");
+    }
+
+    @Benchmark
+    public void sayAndWait() {
+        relay.sayAndWait(TARGET, "hello");
+    }
+
+    @Benchmark
+    public String listen() {
+        return relay.listen(TARGET, "request");
+    }
+
+    // answers the way the server does: a response, then for say a prompt stopped, and for listen a speech event
+    private void reply(String request) {
+        String id = request.substring(request.indexOf("\"_id\":\"") + 7, request.indexOf("\"_id\":\"") + 7 + 16);
+        if (request.contains("wf_api_say_request")) {
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_say_response\",\"_id\":\"" + id + "\",\"id\":\"" + id + "\"}");
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_prompt_event\",\"id\":\"" + id + "\",\"type\":\"stopped\"}");
+        } else if (request.contains("wf_api_listen_request")) {
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_listen_response\",\"_id\":\"" + id + "\"}");
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_speech_event\",\"request_id\":\"" + id + "\",\"text\":\"hello\"}");
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.StartEvent;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of matching a response to its request while other requests of the same
+ * session are still waiting on theirs: sending a request, finding it again by id
+ * when the response arrives, and taking it out of the requests in flight. The
+ * stand-in server answers requests to one device inline and never answers those
+ * to another, which keep the given number of requests in flight.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCorrelationBenchmark {
+
+    private static final String ANSWERED = "urn:relay-resource:name:device:Alice";
+    private static final String UNANSWERED = "urn:relay-resource:name:device:Bob";
+
+    @Param({"0", "100", "1000"})
+    public int inFlight;
+
+    private Session session;
+    private Relay relay;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        // the unanswered requests must outlast the run
+        Relay.setResponseTimeout(Duration.ofHours(1));
+        CountDownLatch started = new CountDownLatch(1);
+        Relay.addWorkflow("correlation", new Workflow() {
+            @Override
+            public void onStart(Relay relay, StartEvent startEvent) {
+                ResponseCorrelationBenchmark.this.relay = relay;
+                started.countDown();
+            }
+        });
+        session = BenchmarkSessions.newSession(this::reply);
+        Relay.startWorkflow(session, "correlation");
+        Relay.receiveMessage(session, "{\"_type\":\"wf_api_start_event\",\"trigger\":{\"type\":\"phrase\",\"args\":{}}}");
+        started.await();
+        for (int i = 0; i < inFlight; i++) {
+            relay.sayAsync(UNANSWERED, "hold");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Relay.stopWorkflow(session, "benchmark");
+        Relay.setResponseTimeout(Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public String say() {
+        return relay.say(ANSWERED, "hello");
+    }
+
+    private void reply(String request) {
+        if (!request.contains(ANSWERED)) {
+            return;
+        }
+        String id = request.substring(request.indexOf("\"_id\":\"") + 7, request.indexOf("\"_id\":\"") + 7 + 16);
+        Relay.receiveMessage(session, "{\"_type\":\"wf_api_say_response\",\"_id\":\"" + id + "\",\"id\":\"" + id + "\"}");
+    }
+
+}
@@ -0,0 +1,74 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import jakarta.websocket.Session;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens a number of idle workflow sessions in each {@link ExecutionMode} and reports
+ * how many would fit in a gigabyte. Heap is measured directly; platform thread stacks
+ * live outside the heap, so they are accounted for with the reserved stack size given
+ * by the {@code relay.bench.stackKb} system property (1024 by default, the usual -Xss).
+ * Not a JMH benchmark: session density is a footprint measurement, not a timing one.
+ */
+public class SessionDensityBenchmark {
+
+    private static final double GB = 1024.0 * 1024 * 1024;
+
+    public static void main(String... args) throws InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long stackBytes = Long.getLong("relay.bench.stackKb", 1024) * 1024;
+
+        Relay.addWorkflow("density", new Workflow() { });
+
+        System.out.println("virtual threads available: " + WorkerThreads.virtualThreadsAvailable());
+        System.out.println("mode,sessions,heapBytesPerSession,threadsPerSession,sessionsPerGb");
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            measure(mode, sessions, stackBytes);
+        }
+    }
+
+    private static void measure(ExecutionMode mode, int count, long stackBytes) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Relay.setExecutionMode(mode);
+
+        long heapBefore = usedHeap();
+        int threadsBefore = threads.getThreadCount();
+
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Session session = BenchmarkSessions.newSession();
+            sessions.add(session);
+            Relay.startWorkflow(session, "density");
+        }
+        // let every worker reach its blocking take()
+        Thread.sleep(1000);
+
+        long heapPerSession = Math.max(0, usedHeap() - heapBefore) / count;
+        double threadsPerSession = (double) (threads.getThreadCount() - threadsBefore) / count;
+        double bytesPerSession = heapPerSession + threadsPerSession * stackBytes;
+
+        System.out.printf("%s,%d,%d,%.2f,%.0f%n", mode, count, heapPerSession, threadsPerSession,
+                bytesPerSession > 0 ? GB / bytesPerSession : Double.POSITIVE_INFINITY);
+
+        for (Session session : sessions) {
+            Relay.stopWorkflow(session, "benchmark");
+        }
+        Thread.sleep(1000);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
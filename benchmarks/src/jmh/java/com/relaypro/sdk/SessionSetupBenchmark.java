@@ -0,0 +1,86 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.ButtonEvent;
+import jakarta.websocket.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of setting up and tearing down a session, as during a storm of connections
+ * after the server restarts, for each way of adding a workflow: a prototype cloned
+ * for every session, a factory called for every session, and a factory backed by a
+ * pool of reset instances. The workflow keeps some per-session state in its fields,
+ * as real workflows do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSetupBenchmark {
+
+    @Param({"prototype", "factory", "pooled"})
+    public String registration;
+
+    private Session session;
+
+    @Setup
+    public void setUp() {
+        Relay.setExecutionMode(ExecutionMode.SharedPool);
+        switch (registration) {
+            case "prototype":
+                Relay.addWorkflow("setup", new CountingWorkflow());
+                break;
+            case "factory":
+                Relay.addWorkflow("setup", CountingWorkflow::new);
+                break;
+            default:
+                Relay.addWorkflow("setup", CountingWorkflow::new, 64);
+                break;
+        }
+        session = BenchmarkSessions.newSession();
+    }
+
+    @Benchmark
+    public Session startAndStop() {
+        Relay.startWorkflow(session, "setup");
+        Relay.stopWorkflow(session, "benchmark");
+        return session;
+    }
+
+    public static class CountingWorkflow extends Workflow {
+        private final Map<String, Integer> tapsByButton = new HashMap<>();
+        private final List<String> history = new ArrayList<>(32);
+
+        @Override
+        public void onButton(Relay relay, ButtonEvent buttonEvent) {
+            tapsByButton.merge(buttonEvent.button, 1, Integer::sum);
+            history.add(buttonEvent.taps);
+        }
+
+        @Override
+        public void reset() {
+            tapsByButton.clear();
+            history.clear();
+        }
+    }
+
+}
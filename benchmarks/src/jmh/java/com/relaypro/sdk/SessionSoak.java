@@ -0,0 +1,90 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.StartEvent;
+import jakarta.websocket.Session;
+
+/**
+ * Opens and closes workflow sessions over and over, the way a busy server does,
+ * and checks that nothing is left behind: after every cycle the session must be
+ * gone from the SDK's registry, and the heap measured after a full GC must stay
+ * flat from one checkpoint to the next. Each session handles a start event and
+ * one request before it is stopped, first by a stop event and then by the
+ * websocket closing, as happens in production. Exits with status 1 if the heap
+ * grows by more than the {@code relay.soak.maxGrowthKb} system property (4096 by
+ * default) or a session is left running.
+ * Not a JMH benchmark: it checks for leaks, it does not time anything.
+ */
+public class SessionSoak {
+
+    private static final int CHECKPOINTS = 10;
+
+    public static void main(String... args) throws InterruptedException {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        ExecutionMode mode = args.length > 1 ? ExecutionMode.valueOf(args[1]) : ExecutionMode.SharedPool;
+        long maxGrowth = Long.getLong("relay.soak.maxGrowthKb", 4096) * 1024;
+
+        Relay.setExecutionMode(mode);
+        Relay.addWorkflow("soak", new Workflow() {
+            @Override
+            public void onStart(Relay relay, StartEvent startEvent) {
+                relay.setVar("state", "started");
+            }
+        });
+
+        // warm up, so class loading and pools sized on first use are not counted as growth
+        runCycles(Math.min(cycles / CHECKPOINTS, 10_000));
+        long baseline = usedHeap();
+        System.out.println("mode,cycles,usedHeapBytes,runningSessions");
+        System.out.printf("%s,%d,%d,%d%n", mode, 0, baseline, Relay.getRunningSessionCount());
+
+        long last = baseline;
+        for (int i = 1; i <= CHECKPOINTS; i++) {
+            runCycles(cycles / CHECKPOINTS);
+            last = usedHeap();
+            System.out.printf("%s,%d,%d,%d%n", mode, i * (cycles / CHECKPOINTS), last, Relay.getRunningSessionCount());
+        }
+
+        long growth = last - baseline;
+        int running = Relay.getRunningSessionCount();
+        System.out.println("heap growth: " + growth + " bytes, sessions left running: " + running);
+        if (growth > maxGrowth || running != 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void runCycles(int cycles) throws InterruptedException {
+        for (int i = 0; i < cycles; i++) {
+            Session[] holder = new Session[1];
+            Session session = BenchmarkSessions.newSession(msg -> respond(holder[0], msg));
+            holder[0] = session;
+            Relay.startWorkflow(session, "soak");
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_start_event\",\"trigger\":{\"type\":\"phrase\",\"args\":{}}}");
+            Relay.receiveMessage(session, "{\"_type\":\"wf_api_stop_event\",\"reason\":\"normal\"}");
+            Relay.stopWorkflow(session, "closed");
+        }
+        // let the workers finish up the last sessions
+        Thread.sleep(500);
+    }
+
+    // answers each request straight away, on the calling thread
+    private static void respond(Session session, String request) {
+        int idStart = request.indexOf("\"_id\":\"") + 7;
+        String id = request.substring(idStart, request.indexOf('"', idStart));
+        Relay.receiveMessage(session, "{\"_type\":\"wf_api_set_var_response\",\"_id\":\"" + id + "\"}");
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,154 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the current access token for a refresh token, for every request sent with it
+ * through a {@link RelayHttpClient}.  A token the auth server said will expire is
+ * replaced shortly before it does, while requests carry on with it, and however many
+ * requests find the token has expired, only one of them asks the auth server for a
+ * new one; the rest wait for its answer.  If replacing a token early fails, the next
+ * try waits a while, longer after each failure, while the token is still good.  Get one from
+ * {@link RelayHttpClient#getTokenProvider(String, String)}.
+ */
+public class AccessTokenProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenProvider.class);
+
+    // how long to wait before replacing a token early again after failing to, doubling with each failure
+    private static final long FIRST_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final RelayHttpClient client;
+    private final String refreshToken;
+    private final String clientId;
+    private final long refreshMarginNanos;
+
+    private volatile Token current;                 // null until the first one is retrieved
+    private CompletableFuture<Token> refreshing;    // guarded by this; null unless a refresh is under way
+    private long retryDelayNanos = 0;               // guarded by this; 0 unless the last refresh failed
+    private volatile long earlyRefreshAtNanos = System.nanoTime();  // no early refresh before this
+
+    AccessTokenProvider(RelayHttpClient client, String refreshToken, String clientId, long refreshMarginNanos) {
+        this.client = client;
+        this.refreshToken = refreshToken;
+        this.clientId = clientId;
+        this.refreshMarginNanos = refreshMarginNanos;
+    }
+
+    /**
+     * Returns the current access token, waiting for a new one if there is none yet or it
+     * has expired.
+     * @return an access token.
+     */
+    @SuppressWarnings("unused")
+    public String getAccessToken() {
+        try {
+            return getAccessTokenAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an access token", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Received exception when trying to update access token: ", e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #getAccessToken()}.
+     * @return a future completed with an access token.
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        return currentAsync(null);
+    }
+
+    // The token to send a request with: the current one if there is one, otherwise the caller's,
+    // which may be a placeholder, otherwise a new one. Starts retrieving a replacement if the
+    // current one is about to expire.
+    CompletableFuture<String> currentAsync(String callerToken) {
+        Token token = current;
+        if (token == null) {
+            return callerToken != null ? CompletableFuture.completedFuture(callerToken) : refreshAsync(null);
+        }
+        if (token.expires) {
+            long remaining = token.expiresAtNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return refreshAsync(token.value);
+            }
+            if (remaining <= refreshMarginNanos && System.nanoTime() - earlyRefreshAtNanos >= 0) {
+                refreshAsync(token.value);      // in the background, this one is still good
+            }
+        }
+        return CompletableFuture.completedFuture(token.value);
+    }
+
+    // A token to replace one the server turned away. If it has been replaced already, that is the
+    // answer; if a replacement is being retrieved, waits for it; otherwise retrieves one.
+    CompletableFuture<String> refreshAsync(String staleToken) {
+        CompletableFuture<Token> pending;
+        synchronized (this) {
+            Token token = current;
+            if (token != null && !token.value.equals(staleToken) && !token.expired()) {
+                return CompletableFuture.completedFuture(token.value);
+            }
+            if (refreshing != null) {
+                return refreshing.thenApply(t -> t.value);
+            }
+            pending = new CompletableFuture<>();
+            refreshing = pending;
+        }
+        client.updateAccessTokenAsync(refreshToken, clientId).whenComplete((token, e) -> {
+            synchronized (this) {
+                if (e == null) {
+                    current = token;
+                    retryDelayNanos = 0;
+                } else {
+                    retryDelayNanos = retryDelayNanos == 0 ? FIRST_RETRY_NANOS : Math.min(MAX_RETRY_NANOS, retryDelayNanos * 2);
+                    earlyRefreshAtNanos = System.nanoTime() + retryDelayNanos;
+                }
+                refreshing = null;
+            }
+            if (e != null) {
+                logger.warn("Failed to refresh access token for client " + clientId, e);
+                pending.completeExceptionally(e);
+            } else {
+                pending.complete(token);
+            }
+        });
+        return pending.thenApply(t -> t.value);
+    }
+
+    // an access token and, if the auth server said, when it expires
+    static final class Token {
+        final String value;
+        final boolean expires;
+        final long expiresAtNanos;
+
+        private Token(String value, boolean expires, long expiresAtNanos) {
+            this.value = value;
+            this.expires = expires;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        static Token of(String value, long expiresInSeconds) {
+            if (expiresInSeconds < 0) {
+                return new Token(value, false, 0);
+            }
+            return new Token(value, true, System.nanoTime() + TimeUnit.SECONDS.toNanos(expiresInSeconds));
+        }
+
+        boolean expired() {
+            return expires && expiresAtNanos - System.nanoTime() <= 0;
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of each request in a {@link RequestBatch}, in the order the
+ * requests were added to the batch.
+ */
+public class BatchResult {
+
+    private final List<Outcome> outcomes;
+
+    BatchResult(List<Outcome> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    /**
+     * Returns the outcome of every request in the batch.
+     * @return the outcomes, in the order the requests were added.
+     */
+    public List<Outcome> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Returns whether the server acknowledged every request in the batch.
+     * @return true if no request failed.
+     */
+    public boolean allSucceeded() {
+        return failureCount() == 0;
+    }
+
+    /**
+     * Returns how many requests in the batch failed.
+     * @return the number of failed requests.
+     */
+    public int failureCount() {
+        int count = 0;
+        for (Outcome outcome : outcomes) {
+            if (!outcome.succeeded()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult" + outcomes;
+    }
+
+    /**
+     * The outcome of a single request in a batch.
+     */
+    public static class Outcome {
+        private final int index;
+        private final String request;
+        private final String error;
+
+        Outcome(int index, String request, String error) {
+            this.index = index;
+            this.request = request;
+            this.error = error;
+        }
+
+        /**
+         * @return the position of the request in the batch, starting at 0.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the type of the request, e.g. "wf_api_set_var_request".
+         */
+        public String getRequest() {
+            return request;
+        }
+
+        /**
+         * @return true if the server acknowledged the request.
+         */
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        /**
+         * @return why the request failed, or null if it succeeded.
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return index + ":" + request + (error == null ? "=ok" : "=" + error);
+        }
+    }
+
+}
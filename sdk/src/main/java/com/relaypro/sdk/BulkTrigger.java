@@ -0,0 +1,308 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * How to start a workflow on many devices at once, see
+ * {@link RelayHttpClient#triggerWorkflowsAsync}.  Triggers are sent over the shared
+ * HTTP client with at most a set number waiting on the server at a time, and
+ * optionally no faster than a set rate, so that a large fan-out is not throttled
+ * by the server.  The same bulk trigger can be used for any number of runs.
+ * <pre>
+ * BulkTrigger bulk = BulkTrigger.newBuilder().maxInFlight(64).rateLimit(200).build();
+ * </pre>
+ */
+public class BulkTrigger {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkTrigger.class);
+
+    private final int maxInFlight;
+    private final double permitsPerSecond;      // 0 for no limit
+    private final int burst;
+
+    private BulkTrigger(Builder builder) {
+        this.maxInFlight = builder.maxInFlight;
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.burst = builder.burst > 0 ? builder.burst : (int) Math.max(1, Math.ceil(builder.permitsPerSecond / 4));
+    }
+
+    /**
+     * Returns a builder for a bulk trigger, which by default has up to 32 triggers in
+     * flight and no rate limit.
+     * @return a new builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    CompletableFuture<BulkTriggerStats> run(RelayHttpClient client, String accessToken, String refreshToken, String clientId,
+                                            Collection<WorkflowInvocation> invocations, Consumer<Outcome> listener) {
+        Run run = new Run(client, accessToken, refreshToken, clientId, invocations, listener);
+        run.pump();
+        return run.done;
+    }
+
+    // one pass over a collection of invocations
+    private final class Run {
+        private final RelayHttpClient client;
+        private final String refreshToken;
+        private final String clientId;
+        private final Consumer<Outcome> listener;
+        private final CompletableFuture<BulkTriggerStats> done = new CompletableFuture<>();
+        private final TokenBucket bucket = new TokenBucket(permitsPerSecond, burst);
+        private final long startNanos = System.nanoTime();
+
+        // guarded by this
+        private final Iterator<WorkflowInvocation> remaining;
+        private final BulkTriggerStats.Recorder recorder;
+        private String accessToken;
+        private int inFlight;
+        private boolean pumping;
+        private boolean pumpAgain;
+        private boolean wakeScheduled;
+
+        Run(RelayHttpClient client, String accessToken, String refreshToken, String clientId,
+            Collection<WorkflowInvocation> invocations, Consumer<Outcome> listener) {
+            this.client = client;
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.clientId = clientId;
+            this.listener = listener;
+            this.remaining = new ArrayList<>(invocations).iterator();
+            this.recorder = new BulkTriggerStats.Recorder(invocations.size());
+        }
+
+        // Sends as many of the remaining invocations as the limits allow. Only one thread pumps
+        // at a time; a call made while another thread is pumping makes that one go round again.
+        void pump() {
+            synchronized (this) {
+                if (pumping) {
+                    pumpAgain = true;
+                    return;
+                }
+                pumping = true;
+            }
+            for (;;) {
+                List<WorkflowInvocation> toSend = new ArrayList<>();
+                String token;
+                boolean finished;
+                synchronized (this) {
+                    while (inFlight < maxInFlight && remaining.hasNext()) {
+                        long wait = bucket.tryAcquire(System.nanoTime());
+                        if (wait > 0) {
+                            if (!wakeScheduled) {
+                                wakeScheduled = true;
+                                Relay.timer.schedule(() -> CompletionPool.execute(this::wake), wait, TimeUnit.NANOSECONDS);
+                            }
+                            break;
+                        }
+                        inFlight++;
+                        toSend.add(remaining.next());
+                    }
+                    token = accessToken;
+                    finished = inFlight == 0 && !remaining.hasNext() && !done.isDone();
+                }
+                for (WorkflowInvocation invocation : toSend) {
+                    send(invocation, token);
+                }
+                if (finished) {
+                    BulkTriggerStats stats;
+                    synchronized (this) {
+                        stats = recorder.stats(System.nanoTime() - startNanos, accessToken);
+                    }
+                    done.complete(stats);
+                }
+                synchronized (this) {
+                    if (!pumpAgain) {
+                        pumping = false;
+                        return;
+                    }
+                    pumpAgain = false;
+                }
+            }
+        }
+
+        private void wake() {
+            synchronized (this) {
+                wakeScheduled = false;
+            }
+            pump();
+        }
+
+        private void send(WorkflowInvocation invocation, String token) {
+            long sentNanos = System.nanoTime();
+            CompletableFuture<Outcome> outcome;
+            try {
+                outcome = client.triggerAsync(token, refreshToken, clientId, invocation, (response, usedToken) ->
+                        new Outcome(invocation, response.statusCode(), response.body(), null, usedToken,
+                                System.nanoTime() - sentNanos));
+            } catch (RuntimeException e) {
+                outcome = CompletableFuture.failedFuture(e);
+            }
+            outcome.handle((result, e) -> result != null ? result
+                    : new Outcome(invocation, 0, null, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e,
+                            token, System.nanoTime() - sentNanos))
+                    .thenAccept(this::finished);
+        }
+
+        private void finished(Outcome outcome) {
+            synchronized (this) {
+                inFlight--;
+                recorder.record(outcome);
+                if (outcome.accessToken != null) {
+                    accessToken = outcome.accessToken;
+                }
+            }
+            try {
+                listener.accept(outcome);
+            } catch (RuntimeException e) {
+                logger.error("Error in bulk trigger listener for " + outcome.invocation, e);
+            }
+            pump();
+        }
+    }
+
+    /**
+     * The outcome of one invocation in a bulk trigger.
+     */
+    public static class Outcome {
+        private final WorkflowInvocation invocation;
+        private final int statusCode;
+        private final String response;
+        private final Throwable error;
+        private final String accessToken;
+        private final long latencyNanos;
+
+        Outcome(WorkflowInvocation invocation, int statusCode, String response, Throwable error, String accessToken,
+                long latencyNanos) {
+            this.invocation = invocation;
+            this.statusCode = statusCode;
+            this.response = response;
+            this.error = error;
+            this.accessToken = accessToken;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /**
+         * @return the invocation this is the outcome of.
+         */
+        public WorkflowInvocation getInvocation() {
+            return invocation;
+        }
+
+        /**
+         * @return true if the server answered with a 2xx status.
+         */
+        public boolean succeeded() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * @return the HTTP status the server answered with, or 0 if there was no answer.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return the body of the server's answer, or null if there was no answer.
+         */
+        public String getResponse() {
+            return response;
+        }
+
+        /**
+         * @return why there was no answer, or null if there was one.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * @return how long the trigger took, from being sent to being answered.
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return invocation + (error != null ? "=" + error : "=" + statusCode);
+        }
+    }
+
+    /**
+     * Configures a {@link BulkTrigger}.
+     */
+    public static class Builder {
+        private int maxInFlight = 32;
+        private double permitsPerSecond = 0;
+        private int burst = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how many triggers may be waiting on the server at a time. Defaults to 32.
+         * @param maxInFlight the most triggers in flight.
+         * @return this builder.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Sets how many triggers may be sent per second, on average. By default there is no limit.
+         * @param permitsPerSecond the most triggers per second, or 0 for no limit.
+         * @return this builder.
+         */
+        public Builder rateLimit(double permitsPerSecond) {
+            if (permitsPerSecond < 0) {
+                throw new IllegalArgumentException("permitsPerSecond must not be negative: " + permitsPerSecond);
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets how many triggers may be sent at once after a pause, while keeping to the
+         * rate limit on average. Defaults to a quarter of a second's worth, and
+         * should be no less than a fifth of a second's worth, as sending resumes at most every
+         * tenth of a second.
+         * @param burst the most triggers sent at once.
+         * @return this builder.
+         */
+        public Builder burst(int burst) {
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be at least 1: " + burst);
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Creates the bulk trigger.
+         * @return a new bulk trigger.
+         */
+        public BulkTrigger build() {
+            return new BulkTrigger(this);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What happened in a run of a {@link BulkTrigger}: how many invocations succeeded,
+ * why the others failed, and how long they took.
+ */
+public class BulkTriggerStats {
+
+    private final int invocations;
+    private final int succeeded;
+    private final Map<Integer, Integer> failuresByStatus;
+    private final long[] sortedLatencyNanos;
+    private final long elapsedNanos;
+    private final String accessToken;
+
+    private BulkTriggerStats(int invocations, int succeeded, Map<Integer, Integer> failuresByStatus,
+                             long[] sortedLatencyNanos, long elapsedNanos, String accessToken) {
+        this.invocations = invocations;
+        this.succeeded = succeeded;
+        this.failuresByStatus = Collections.unmodifiableMap(failuresByStatus);
+        this.sortedLatencyNanos = sortedLatencyNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.accessToken = accessToken;
+    }
+
+    /**
+     * @return how many invocations there were.
+     */
+    public int getInvocationCount() {
+        return invocations;
+    }
+
+    /**
+     * @return how many invocations the server answered with a 2xx status.
+     */
+    public int getSuccessCount() {
+        return succeeded;
+    }
+
+    /**
+     * @return how many invocations failed.
+     */
+    public int getFailureCount() {
+        return invocations - succeeded;
+    }
+
+    /**
+     * Returns how many invocations failed with each HTTP status, where 0 counts those the
+     * server never answered.
+     * @return the failures by status, in order of status.
+     */
+    public Map<Integer, Integer> getFailuresByStatus() {
+        return failuresByStatus;
+    }
+
+    /**
+     * Returns the latency that the given share of invocations took no longer than.
+     * @param percentile between 0 and 100, such as 99 for the 99th percentile.
+     * @return the latency at the percentile, or zero if there were no invocations.
+     */
+    public Duration getLatencyPercentile(double percentile) {
+        if (sortedLatencyNanos.length == 0) {
+            return Duration.ZERO;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencyNanos.length) - 1;
+        return Duration.ofNanos(sortedLatencyNanos[Math.max(0, Math.min(index, sortedLatencyNanos.length - 1))]);
+    }
+
+    /**
+     * @return the mean latency of the invocations, or zero if there were none.
+     */
+    public Duration getMeanLatency() {
+        if (sortedLatencyNanos.length == 0) {
+            return Duration.ZERO;
+        }
+        long total = 0;
+        for (long latency : sortedLatencyNanos) {
+            total += latency;
+        }
+        return Duration.ofNanos(total / sortedLatencyNanos.length);
+    }
+
+    /**
+     * @return the longest latency of the invocations, or zero if there were none.
+     */
+    public Duration getMaxLatency() {
+        return sortedLatencyNanos.length == 0 ? Duration.ZERO : Duration.ofNanos(sortedLatencyNanos[sortedLatencyNanos.length - 1]);
+    }
+
+    /**
+     * @return how long the whole run took.
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * @return the access token the last invocation was sent with, which may be newer than the one passed in.
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkTriggerStats{invocations=" + invocations + ", succeeded=" + succeeded
+                + ", failuresByStatus=" + failuresByStatus + ", p50=" + getLatencyPercentile(50)
+                + ", p99=" + getLatencyPercentile(99) + ", max=" + getMaxLatency() + ", elapsed=" + getElapsed() + "}";
+    }
+
+    // collects the outcomes of a run as they arrive; not thread-safe
+    static final class Recorder {
+        private final long[] latencyNanos;
+        private final Map<Integer, Integer> failuresByStatus = new TreeMap<>();
+        private int recorded;
+        private int succeeded;
+
+        Recorder(int expected) {
+            this.latencyNanos = new long[expected];
+        }
+
+        void record(BulkTrigger.Outcome outcome) {
+            latencyNanos[recorded++] = outcome.getLatencyNanos();
+            if (outcome.succeeded()) {
+                succeeded++;
+            } else {
+                failuresByStatus.merge(outcome.getStatusCode(), 1, Integer::sum);
+            }
+        }
+
+        BulkTriggerStats stats(long elapsedNanos, String accessToken) {
+            long[] sorted = Arrays.copyOf(latencyNanos, recorded);
+            Arrays.sort(sorted);
+            return new BulkTriggerStats(recorded, succeeded, new TreeMap<>(failuresByStatus), sorted, elapsedNanos, accessToken);
+        }
+    }
+
+}
@@ -2,11 +2,251 @@
 
 package com.relaypro.sdk;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import jakarta.websocket.EncodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-class Call {
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * A request that has been sent and is waiting on its response.  All incoming
+ * response/prompt/progress messages with a matching id are delivered here, and
+ * the call completes once the request is done.  The call is itself the future
+ * handed back to the caller, completed with the value mapped from the response,
+ * so a request costs one object rather than a chain of futures.
+ */
+class Call<T> extends CompletableFuture<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(Call.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Call> FINISHED = AtomicIntegerFieldUpdater.newUpdater(Call.class, "finished");
+
+    private final boolean waitForPromptEnd;
+    private final Function<MessageWrapper, T> mapper;
+    private final String errorMessage;      // if null, failures complete the call exceptionally
+    private final T fallback;               // otherwise they are logged and complete it with this
+
+    // every message received resets the response timeout
+    volatile long lastActivityNanos = System.nanoTime();
+    private long timeoutNanos;
+    private long deadlineNanos;             // System.nanoTime() by which the call must complete, if hasDeadline
+    private boolean hasDeadline;
+    private volatile HashedWheelTimer.Timeout timer;
+
+    // Only touched by deliver(), which is only called from receiveMessage() on the session's websocket
+    // thread, one message at a time. Stopping the workflow, timeouts and callers on other threads
+    // complete the call through fail() or the CAS in finish() instead, and never touch these.
+    private MessageWrapper resp = null;
+    private boolean receivedSpeechEvent = false;
+
+    private static final int ANSWERED = 1;
+    private static final int TIMED_OUT = 2;
+    private static final int FAILED = 3;
+
+    // set when the call is sent, if metrics are on
+    private RequestType type;
+    private RelayMetrics metrics;
+    private long sentNanos;
+
+    private volatile int finished = 0;
+    private volatile Runnable onDone;       // run just before the call completes
+
+    private Call(boolean waitForPromptEnd, String errorMessage, T fallback, Function<MessageWrapper, T> mapper) {
+        this.waitForPromptEnd = waitForPromptEnd;
+        this.errorMessage = errorMessage;
+        this.fallback = fallback;
+        this.mapper = mapper;
+    }
+
+    // a call completed with the response itself, or exceptionally if the request fails
+    static Call<MessageWrapper> of(boolean waitForPromptEnd) {
+        return new Call<>(waitForPromptEnd, null, null, Function.identity());
+    }
+
+    // A call completed with the value the mapper takes from the response. Any failure is logged
+    // and completes it with the fallback, the same value the blocking API returns in that case.
+    static <T> Call<T> mapped(boolean waitForPromptEnd, String errorMessage, T fallback, Function<MessageWrapper, T> mapper) {
+        return new Call<>(waitForPromptEnd, errorMessage, fallback, mapper);
+    }
+
+    // if waitForPromptEnd is false, complete with the matching response as soon as it is received
+    // else store the response, and wait until a prompt end is seen, then complete with the response message
+    void deliver(MessageWrapper response) {
+        lastActivityNanos = System.nanoTime();
+        if (finished != 0) {
+            return;
+        }
+        if (receivedSpeechEvent) {
+            // for listen, the message after the response carries the result
+            respond(response);
+            return;
+        }
+        if (response.type.equals("prompt")) {
+            if ("stopped".equals(response.typeField) && waitForPromptEnd) {
+                respond(resp);
+            }
+            // otherwise do nothing with it
+        } else if (response.type.equals("progress")) {
+            // nothing to do here, will continue listening with a fresh timeout
+        } else if (response.type.equals("error")) {
+            // if an error was returned, then no response will be
+            logger.error("Error returned for call: " + response.messageJson);
+            fail(new ErrorResponseException(response));
+        } else if (response.eventOrResponse.equals("response") || response.eventOrResponse.equals("event")) {
+            // matching response
+            if (!waitForPromptEnd) {
+                respond(response);
+                return;
+            }
+            // need to wait for prompt end, save the response to return then
+            resp = response;
+            // for listen, notify that we received a speech event
+            receivedSpeechEvent = true;
+        }
+    }
+
+    // Records what was sent, for the metrics to be told how the call ended. Set once, before it
+    // is added to the requests in flight.
+    void sent(RequestType type, RelayMetrics metrics) {
+        if (metrics == RelayMetrics.NOOP) {
+            return;
+        }
+        this.type = type;
+        this.metrics = metrics;
+        this.sentNanos = System.nanoTime();
+        metrics.requestSent(type);
+    }
+
+    void onDone(Runnable action) {
+        this.onDone = action;
+    }
+
+    // Sets how long the call may go without hearing anything back, and optionally an overall
+    // deadline that holds however many progress messages arrive. Set once, before it is sent.
+    void setTimeouts(long timeoutNanos, long deadlineNanos, boolean hasDeadline) {
+        this.timeoutNanos = timeoutNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    // the System.nanoTime() at which the call times out, as things stand
+    long expiresAt() {
+        long idleExpiry = lastActivityNanos + timeoutNanos;
+        return hasDeadline && deadlineNanos - idleExpiry < 0 ? deadlineNanos : idleExpiry;
+    }
+
+    void setTimer(HashedWheelTimer.Timeout timer) {
+        this.timer = timer;
+        if (finished != 0) {
+            timer.cancel();
+        }
+    }
+
+    // completes the call with the value mapped from the response, or the fallback if there is none
+    boolean respond(MessageWrapper response) {
+        if (!finish(response != null ? ANSWERED : FAILED)) {
+            return false;
+        }
+        T value = fallback;
+        if (response != null) {
+            try {
+                value = mapper.apply(response);
+            } catch (RuntimeException e) {
+                logger.error(errorMessage, e);
+            }
+        }
+        return super.complete(value);
+    }
+
+    boolean fail(Throwable e) {
+        if (!finish(e instanceof TimeoutException ? TIMED_OUT : FAILED)) {
+            return false;
+        }
+        if (errorMessage == null) {
+            return super.completeExceptionally(e);
+        }
+        if (e instanceof EncodeException || e instanceof IOException || e instanceof RejectedExecutionException) {
+            logger.error(errorMessage, e);
+        }
+        // timeouts, error responses and stops have already been logged
+        return super.complete(fallback);
+    }
+
+    // returns true if this call had not yet completed
+    boolean timeout() {
+        return fail(new TimeoutException("Timed out waiting for response"));
+    }
+
+    // Only the first way of completing the call gets through, and it first takes the call out of
+    // the requests in flight.
+    private boolean finish(int outcome) {
+        if (!FINISHED.compareAndSet(this, 0, 1)) {
+            return false;
+        }
+        Runnable action = onDone;
+        if (action != null) {
+            action.run();
+        }
+        HashedWheelTimer.Timeout pendingTimer = timer;
+        if (pendingTimer != null) {
+            pendingTimer.cancel();
+        }
+        RelayMetrics callMetrics = metrics;
+        if (callMetrics != null) {
+            report(callMetrics, outcome);
+        }
+        return true;
+    }
+
+    private void report(RelayMetrics callMetrics, int outcome) {
+        switch (outcome) {
+            case ANSWERED:
+                callMetrics.requestAnswered(type, System.nanoTime() - sentNanos);
+                break;
+            case TIMED_OUT:
+                callMetrics.requestTimedOut(type);
+                break;
+            default:
+                callMetrics.requestFailed(type);
+                break;
+        }
+    }
+
+    // a caller completing or cancelling the future gives up on the request
+
+    @Override
+    public boolean complete(T value) {
+        return finish(FAILED) && super.complete(value);
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        return finish(FAILED) && super.completeExceptionally(ex);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(FAILED) && super.cancel(mayInterruptIfRunning);
+    }
+
+    /**
+     * The server answered a request with an error.
+     */
+    static class ErrorResponseException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final transient MessageWrapper response;
+
+        ErrorResponseException(MessageWrapper response) {
+            super("Error returned for call: " + response.messageJson);
+            this.response = response;
+        }
+    }
 
-    BlockingQueue<MessageWrapper> responseQueue = new LinkedBlockingDeque<>();
-    
 }
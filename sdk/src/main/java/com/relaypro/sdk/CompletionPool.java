@@ -0,0 +1,33 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work the request timer finds due: timing out requests and batches,
+ * sweeping up requests the timeouts missed, resuming bulk triggers and inventory
+ * refreshes that were waiting their turn, and closing sessions whose onStop
+ * overran.  Completing a future runs the stages callers chained onto it, so that
+ * work is handed here rather than done on the timer's one thread, where a slow
+ * stage would hold up the timeouts of every session.  A few daemon threads, as the
+ * work is mostly short.
+ */
+class CompletionPool {
+
+    private static final AtomicInteger threads = new AtomicInteger();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())),
+            task -> {
+                Thread thread = new Thread(task, "relay-completion-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+}
@@ -0,0 +1,142 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceInfoQueryType;
+import com.relaypro.sdk.types.DeviceInfoResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A session's answers to device info queries, kept for a while so that reading
+ * the same field of the same device again needs no round trip.  How long each
+ * kind of answer stays fresh is configured per {@link DeviceInfoQueryType} with
+ * {@link Relay#setDeviceInfoTtl(DeviceInfoQueryType, java.time.Duration)}.
+ */
+class DeviceInfoCache {
+
+    private static final DeviceInfoQueryType[] QUERY_TYPES = DeviceInfoQueryType.values();
+
+    // how long an answer stays fresh, by query type ordinal; 0 means it is not kept
+    static final AtomicLongArray ttlNanos = new AtomicLongArray(QUERY_TYPES.length);
+    static {
+        for (DeviceInfoQueryType query : QUERY_TYPES) {
+            ttlNanos.set(query.ordinal(), defaultTtlNanos(query));
+        }
+    }
+
+    private final Map<String, AtomicReferenceArray<Entry>> entriesByTarget = new ConcurrentHashMap<>();
+
+    // bumped by every invalidation, so that answers to queries sent before one are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    // what identifies a device hardly ever changes, its battery and whereabouts do
+    private static long defaultTtlNanos(DeviceInfoQueryType query) {
+        switch (query) {
+            case Name:
+            case Id:
+            case Type:
+            case Username:
+                return TimeUnit.MINUTES.toNanos(5);
+            default:
+                return TimeUnit.SECONDS.toNanos(15);
+        }
+    }
+
+    // the answer to the query if one is still fresh, otherwise null
+    DeviceInfoResponse get(String target, DeviceInfoQueryType query) {
+        AtomicReferenceArray<Entry> entries = entriesByTarget.get(target);
+        if (entries == null) {
+            return null;
+        }
+        Entry entry = entries.get(query.ordinal());
+        if (entry == null || entry.expiresAtNanos - System.nanoTime() < 0) {
+            return null;
+        }
+        return entry.response;
+    }
+
+    // read before a query is sent, and handed to put() with its answer
+    long generation() {
+        return generation.get();
+    }
+
+    // Keeps the answer to a query sent at the given generation, unless something about a device was
+    // invalidated since, in which case the answer may predate the change and is dropped.
+    void put(String target, DeviceInfoQueryType query, DeviceInfoResponse response, long sentAt) {
+        long ttl = ttlNanos.get(query.ordinal());
+        if (ttl <= 0 || response == null || generation.get() != sentAt) {
+            return;
+        }
+        AtomicReferenceArray<Entry> entries = entriesByTarget.computeIfAbsent(target, t -> new AtomicReferenceArray<>(QUERY_TYPES.length));
+        Entry entry = new Entry(response, System.nanoTime() + ttl);
+        entries.set(query.ordinal(), entry);
+        // an invalidation that came in between may have missed the entry, so take it back out
+        if (generation.get() != sentAt) {
+            entries.compareAndSet(query.ordinal(), entry, null);
+        }
+    }
+
+    // forgets what the device's answer to the query was, after the workflow changed it
+    void invalidate(String target, DeviceInfoQueryType query) {
+        generation.incrementAndGet();
+        AtomicReferenceArray<Entry> entries = entriesByTarget.get(target);
+        if (entries != null) {
+            entries.set(query.ordinal(), null);
+        }
+    }
+
+    void invalidate(String target) {
+        generation.incrementAndGet();
+        entriesByTarget.remove(target);
+    }
+
+    // copies the field a query asks for from one response to another
+    static void copyField(DeviceInfoQueryType query, DeviceInfoResponse from, DeviceInfoResponse to) {
+        switch (query) {
+            case Name:
+                to.name = from.name;
+                break;
+            case Id:
+                to.id = from.id;
+                break;
+            case Address:
+                to.address = from.address;
+                break;
+            case LatLong:
+                to.latlong = from.latlong != null ? from.latlong.clone() : null;
+                break;
+            case IndoorLocation:
+                to.indoor_location = from.indoor_location;
+                break;
+            case Battery:
+                to.battery = from.battery;
+                break;
+            case Type:
+                to.type = from.type;
+                break;
+            case Username:
+                to.username = from.username;
+                break;
+            case LocationEnabled:
+                to.location_enabled = from.location_enabled;
+                break;
+        }
+    }
+
+    private static final class Entry {
+        final DeviceInfoResponse response;
+        final long expiresAtNanos;
+
+        Entry(DeviceInfoResponse response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The queue of events a session's websocket reader hands to its {@link Worker}.
+ * It holds at most a fixed number of events, and what happens to an event that
+ * arrives when it is full is up to its {@link EventQueueOverflowPolicy}.  The
+ * stop message that ends the worker always gets in, after which the queue
+ * accepts nothing more.
+ */
+class EventQueue {
+
+    // events where a newer one of the same type makes an older one moot
+    private static final Set<EventType> COALESCIBLE = EnumSet.of(
+            EventType.Button, EventType.Notification, EventType.Prompt, EventType.Speech, EventType.Timer);
+
+    private final int capacity;
+    private final EventQueueOverflowPolicy policy;
+    private final Stats workflowStats;      // shared by every session of the same workflow
+
+    private final ArrayDeque<MessageWrapper> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // guarded by lock
+    private boolean closed = false;
+    private int highWaterMark = 0;
+    private long dropped = 0;
+
+    EventQueue(int capacity, EventQueueOverflowPolicy policy, Stats workflowStats) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.workflowStats = workflowStats;
+    }
+
+    // Called on the websocket thread. Returns false if the queue is full and the session should fail.
+    boolean put(MessageWrapper msgWrapper) {
+        lock.lock();
+        try {
+            if (closed) {
+                // the worker is stopping, nothing will take it
+                return true;
+            }
+            if (msgWrapper.stopped) {
+                closed = true;
+                notFull.signalAll();
+            } else {
+                while (queue.size() >= capacity) {
+                    if (policy == EventQueueOverflowPolicy.FailSession) {
+                        drop();
+                        return false;
+                    }
+                    if (policy == EventQueueOverflowPolicy.DropOldest && dropOldestOfSameType(msgWrapper)) {
+                        break;
+                    }
+                    notFull.await();
+                    if (closed) {
+                        return true;
+                    }
+                }
+            }
+            queue.add(msgWrapper);
+            if (!msgWrapper.stopped && queue.size() > highWaterMark) {
+                highWaterMark = queue.size();
+                workflowStats.updateHighWaterMark(highWaterMark);
+            }
+            notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drop();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    MessageWrapper take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            notFull.signal();
+            return queue.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    MessageWrapper poll() {
+        lock.lock();
+        try {
+            MessageWrapper msgWrapper = queue.poll();
+            if (msgWrapper != null) {
+                notFull.signal();
+            }
+            return msgWrapper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int highWaterMark() {
+        lock.lock();
+        try {
+            return highWaterMark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long dropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // makes room for the event by dropping the oldest queued one of its type, if its type is one that can be
+    private boolean dropOldestOfSameType(MessageWrapper msgWrapper) {
+        if (!isCoalescible(msgWrapper)) {
+            return false;
+        }
+        for (Iterator<MessageWrapper> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().eventType == msgWrapper.eventType) {
+                it.remove();
+                drop();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCoalescible(MessageWrapper msgWrapper) {
+        return msgWrapper.eventType != null && COALESCIBLE.contains(msgWrapper.eventType);
+    }
+
+    private void drop() {
+        dropped++;
+        workflowStats.dropped.increment();
+    }
+
+    /**
+     * The queue gauges of every session of one workflow, including those that have ended.
+     */
+    static class Stats {
+        private final AtomicInteger highWaterMark = new AtomicInteger();
+        private final LongAdder dropped = new LongAdder();
+
+        // only called when one session's high-water mark rises, so it rarely contends
+        private void updateHighWaterMark(int sessionHighWaterMark) {
+            highWaterMark.accumulateAndGet(sessionHighWaterMark, Math::max);
+        }
+
+        int highWaterMark() {
+            return highWaterMark.get();
+        }
+
+        long dropped() {
+            return dropped.sum();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+/**
+ * What a session does with an incoming event when its event queue is full,
+ * because the workflow's callbacks are not keeping up.  Set it with
+ * {@link Relay#setEventQueueCapacity(int, EventQueueOverflowPolicy)}.
+ */
+public enum EventQueueOverflowPolicy {
+
+    /**
+     * The websocket reader waits until the workflow has taken an event off the
+     * queue.  No event is lost, but while the reader waits it cannot deliver
+     * responses either, so a callback that is itself waiting on a response stays
+     * stuck until that request times out.
+     */
+    Block,
+
+    /**
+     * For an event of a type where only the latest matters, that is button,
+     * notification, prompt, speech and timer events, makes room by dropping the
+     * oldest queued event of the same type.  An event of another type never
+     * makes room for it.  If no event of its type is queued, or it is of any
+     * other type, the incoming event waits as with {@link #Block}.
+     */
+    DropOldest,
+
+    /**
+     * Stops the workflow and closes the session.
+     */
+    FailSession
+
+}
@@ -4,50 +4,64 @@ package com.relaypro.sdk;
 
 import com.relaypro.sdk.types.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The types of event the server sends a workflow, each handled by one {@link Workflow}
+ * method.  Used to label measurements in {@link RelayMetrics}.
+ */
 @SuppressWarnings("rawtypes")
-enum EventType {
-    Start("wf_api_start_event", StartEvent.class),
-    Stop("wf_api_stop_event", StopEvent.class),
-    InteractionLifecycle("wf_api_interaction_lifecycle_event", InteractionLifecycleEvent.class),
-    Prompt("wf_api_prompt_event", PromptEvent.class),
-    Timer("wf_api_timer_event", TimerEvent.class),
-    TimerFired("wf_api_timer_fired_event", TimerFiredEvent.class),
-    Button("wf_api_button_event", ButtonEvent.class),
-    Notification("wf_api_notification_event", NotificationEvent.class),
-    Sms("wf_api_sms_event", SmsEvent.class),
-    Speech("wf_api_speech_event", SpeechEvent.class),
-    Incident("wf_api_incident_event", IncidentEvent.class),
-    CallStart("wf_api_call_start_request_event", CallStartEvent.class),
-    CallReceived("wf_api_call_received_event", CallReceivedEvent.class),
-    CallRinging("wf_api_call_ringing_event", CallRingingEvent.class),
-    CallProgressing("wf_api_call_progressing_event", CallProgressingEvent.class),
-    CallConnected("wf_api_call_connected_event", CallConnectedEvent.class),
-    CallDisconnected("wf_api_call_disconnected_event", CallDisconnectedEvent.class),
-    CallFailed("wf_api_call_failed_event", CallFailedEvent.class),
-    PlayInboxMessages("wf_api_play_inbox_messages_event", PlayInboxMessagesEvent.class);
+public enum EventType {
+    Start("wf_api_start_event", StartEvent.class, "onStart"),
+    Stop("wf_api_stop_event", StopEvent.class, "onStop"),
+    InteractionLifecycle("wf_api_interaction_lifecycle_event", InteractionLifecycleEvent.class, "onInteractionLifecycle"),
+    Prompt("wf_api_prompt_event", PromptEvent.class, "onPrompt"),
+    Timer("wf_api_timer_event", TimerEvent.class, "onTimer"),
+    TimerFired("wf_api_timer_fired_event", TimerFiredEvent.class, "onTimerFired"),
+    Button("wf_api_button_event", ButtonEvent.class, "onButton"),
+    Notification("wf_api_notification_event", NotificationEvent.class, "onNotification"),
+    Sms("wf_api_sms_event", SmsEvent.class, "onSms"),
+    Speech("wf_api_speech_event", SpeechEvent.class, "onSpeech"),
+    Incident("wf_api_incident_event", IncidentEvent.class, "onIncident"),
+    CallStart("wf_api_call_start_request_event", CallStartEvent.class, "onCallStartRequest"),
+    CallReceived("wf_api_call_received_event", CallReceivedEvent.class, "onCallReceived"),
+    CallRinging("wf_api_call_ringing_event", CallRingingEvent.class, "onCallRinging"),
+    CallProgressing("wf_api_call_progressing_event", CallProgressingEvent.class, "onCallProgressing"),
+    CallConnected("wf_api_call_connected_event", CallConnectedEvent.class, "onCallConnected"),
+    CallDisconnected("wf_api_call_disconnected_event", CallDisconnectedEvent.class, "onCallDisconnected"),
+    CallFailed("wf_api_call_failed_event", CallFailedEvent.class, "onCallFailed"),
+    PlayInboxMessages("wf_api_play_inbox_messages_event", PlayInboxMessagesEvent.class, "onPlayInboxMessage");
     
     private final String value;
     private final Class eventClass;
+    private final String callback;      // the Workflow method that handles this event
 
     public String value() {
         return value;
     }
-    public Class eventClass() {
+    Class eventClass() {
         return eventClass;
     }
+    String callback() {
+        return callback;
+    }
 
-    EventType(String value, Class eventClass) {
+    EventType(String value, Class eventClass, String callback) {
         this.value = value;
         this.eventClass = eventClass;
+        this.callback = callback;
     }
 
-    public static EventType getByType(String type) {
+    private static final Map<String, EventType> BY_TYPE = new HashMap<>();
+    static {
         for (EventType et : EventType.values()) {
-            if (et.value.equals(type)) {
-                return et;
-            }
+            BY_TYPE.put(et.value, et);
         }
-        return null;
+    }
+
+    static EventType getByType(String type) {
+        return BY_TYPE.get(type);
     }
         
 }
@@ -0,0 +1,37 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+/**
+ * How the SDK runs the workflow code for each websocket session.  Every
+ * session gets its own worker that takes events off the session's queue, in
+ * order and one at a time, and invokes the matching {@link Workflow} callbacks;
+ * the execution mode decides which threads that worker runs on.  Set it with
+ * {@link Relay#setExecutionMode(ExecutionMode)} before the websocket server
+ * starts accepting connections.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Each session's worker runs on its own platform thread.  This is the default.
+     */
+    PlatformThread,
+
+    /**
+     * Each session's worker runs on its own virtual thread, so a session that is
+     * idle or blocked waiting for a response from the server does not hold on to
+     * a platform thread.  Requires Java 21 or later; on older runtimes the SDK logs
+     * a warning and falls back to {@link #PlatformThread}.
+     */
+    VirtualThread,
+
+    /**
+     * All sessions share one pool of threads sized to the number of cores.  A
+     * session is only given a pool thread while it has events waiting, so idle
+     * sessions cost no thread at all.  When a callback blocks waiting for a
+     * response from the server, the pool temporarily adds a thread so the other
+     * sessions keep running.
+     */
+    SharedPool
+
+}
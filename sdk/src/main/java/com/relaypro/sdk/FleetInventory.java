@@ -0,0 +1,550 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.relaypro.sdk.types.DeviceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The records of a fleet of devices, fetched from the device API and kept in memory
+ * so that looking a device up by IMEI, name or group costs a map lookup rather than
+ * an HTTPS round trip.  Devices are loaded with many requests in flight at once
+ * over the shared {@link RelayHttpClient}, and, if a refresh period is set, are
+ * fetched again a few at a time in the background so that the records follow
+ * changes made on the server.
+ * <p>
+ * Given a snapshot file, the inventory saves its records there, and when next built
+ * maps the file and answers lookups from it straight away, while the devices in it
+ * are fetched again in the background; each fetched record then takes the place of
+ * the saved one.
+ * <pre>
+ * FleetInventory inventory = FleetInventory.newBuilder(accessToken, refreshToken, clientId, subscriberId)
+ *         .refreshEvery(Duration.ofSeconds(10), 50)
+ *         .build();
+ * inventory.loadAsync(imeis).join();
+ * DeviceRecord device = inventory.findByName("Alice");
+ * </pre>
+ */
+public class FleetInventory implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetInventory.class);
+
+    private final RelayHttpClient client;
+    private final String refreshToken;
+    private final String clientId;
+    private final String subscriberId;
+    private final int maxInFlight;
+    private final long refreshPeriodNanos;      // 0 for no background refresh
+    private final int devicesPerRefresh;
+    private final Path snapshotFile;            // null if records are not saved
+    private final InventorySnapshot snapshot;   // null unless one was read at startup
+    private final CompletableFuture<Void> snapshotRefresh;
+
+    private volatile String accessToken;
+    private final Map<String, DeviceRecord> byImei = new ConcurrentHashMap<>();
+    private final Map<String, DeviceRecord> byName = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> imeisByGroup = new ConcurrentHashMap<>();
+
+    // the devices to keep refreshed, in the order they were loaded; guarded by tracked
+    private final Set<String> tracked = new HashSet<>();
+    private final List<String> trackedInOrder = new ArrayList<>();
+    private int refreshCursor;
+    private volatile boolean closed;
+    private volatile boolean refreshScheduled;
+
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchFailures = new LongAdder();
+
+    private FleetInventory(Builder builder) {
+        this.client = builder.client != null ? builder.client : Relay.getHttpClient();
+        this.accessToken = builder.accessToken;
+        this.refreshToken = builder.refreshToken;
+        this.clientId = builder.clientId;
+        this.subscriberId = builder.subscriberId;
+        this.maxInFlight = builder.maxInFlight;
+        this.refreshPeriodNanos = builder.refreshPeriod != null ? builder.refreshPeriod.toNanos() : 0;
+        this.devicesPerRefresh = builder.devicesPerRefresh;
+        this.snapshotFile = builder.snapshotFile;
+        this.snapshot = openSnapshot(snapshotFile);
+        if (snapshot == null) {
+            this.snapshotRefresh = CompletableFuture.completedFuture(null);
+        } else {
+            // Fetches the saved devices again off the caller's thread, which can start looking them up
+            // in the snapshot straight away, then saves what they are now.
+            this.snapshotRefresh = CompletableFuture.supplyAsync(snapshot::imeis)
+                    .thenCompose(this::loadAsync)
+                    .whenComplete((v, e) -> saveSnapshotQuietly());
+        }
+    }
+
+    private static InventorySnapshot openSnapshot(Path file) {
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        try {
+            InventorySnapshot snapshot = InventorySnapshot.open(file);
+            logger.debug("Read " + snapshot.size() + " devices from inventory snapshot " + file + " written at "
+                    + Instant.ofEpochMilli(snapshot.writtenAtMillis()));
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable inventory snapshot " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a builder for an inventory of the subscriber's devices.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @return a new builder.
+     */
+    public static Builder newBuilder(String accessToken, String refreshToken, String clientId, String subscriberId) {
+        return new Builder(accessToken, refreshToken, clientId, subscriberId);
+    }
+
+    /**
+     * Fetches the records of the devices and adds them to the inventory, along with any
+     * already in it, to be kept refreshed. Devices whose record could not be fetched are
+     * tried again by the background refresh.
+     * @param imeis the IMEIs of the devices, such as 990007560023456.
+     * @return a future completed once every device has been fetched or has failed.
+     */
+    public CompletableFuture<Void> loadAsync(Collection<String> imeis) {
+        List<String> toFetch = new ArrayList<>(imeis.size());
+        synchronized (tracked) {
+            for (String imei : imeis) {
+                if (tracked.add(imei)) {
+                    trackedInOrder.add(imei);
+                    toFetch.add(imei);
+                }
+            }
+        }
+        // the background refresh starts once the devices are in, rather than fetching them twice
+        return fetchAll(toFetch).whenComplete((v, e) -> scheduleRefresh());
+    }
+
+    /**
+     * Fetches the records of every device in the inventory again.
+     * @return a future completed once every device has been fetched or has failed.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> refreshAsync() {
+        List<String> all;
+        synchronized (tracked) {
+            all = new ArrayList<>(trackedInOrder);
+        }
+        return fetchAll(all);
+    }
+
+    // fetches the devices with up to maxInFlight requests in flight, each lane taking the next device when its last is done
+    private CompletableFuture<Void> fetchAll(List<String> imeis) {
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(maxInFlight, imeis.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = fetchNext(imeis, next);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    private CompletableFuture<Void> fetchNext(List<String> imeis, AtomicInteger next) {
+        int index = next.getAndIncrement();
+        if (index >= imeis.size() || closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return fetch(imeis.get(index)).thenCompose(v -> fetchNext(imeis, next));
+    }
+
+    // Fetches one device's record and indexes it. Never completes exceptionally: on failure
+    // the device keeps the record it had.
+    CompletableFuture<Void> fetch(String imei) {
+        fetches.increment();
+        CompletableFuture<Map<String, String>> response;
+        try {
+            response = client.fetchDeviceAsync(accessToken, refreshToken, clientId, subscriberId, imei);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((result, e) -> {
+            if (e != null) {
+                fetchFailures.increment();
+                logger.debug("Failed to fetch device " + imei, e);
+                return null;
+            }
+            accessToken = result.get("access_token");
+            DeviceRecord record;
+            try {
+                record = parseRecord(imei, result.get("response"));
+            } catch (RuntimeException parseError) {
+                fetchFailures.increment();
+                logger.debug("Failed to parse device " + imei + ": " + result.get("response"), parseError);
+                return null;
+            }
+            put(record);
+            return null;
+        });
+    }
+
+    // Indexes the record in place of the device's previous one. Fetches of the same device can
+    // overlap, so the indexes are updated while holding the device's entry, one record at a time,
+    // and the name and groups indexed always belong to the record the device ends up with.
+    void put(DeviceRecord record) {
+        byImei.compute(record.imei, (imei, previous) -> {
+            if (previous != null) {
+                if (previous.name != null && !previous.name.equals(record.name)) {
+                    byName.remove(previous.name, previous);
+                }
+                if (previous.groups != null) {
+                    for (String group : previous.groups) {
+                        if (!contains(record.groups, group)) {
+                            Set<String> members = imeisByGroup.get(group);
+                            if (members != null) {
+                                members.remove(imei);
+                            }
+                        }
+                    }
+                }
+            }
+            if (record.name != null) {
+                byName.put(record.name, record);
+            }
+            if (record.groups != null) {
+                for (String group : record.groups) {
+                    imeisByGroup.computeIfAbsent(group, g -> ConcurrentHashMap.newKeySet()).add(imei);
+                }
+            }
+            return record;
+        });
+    }
+
+    private static boolean contains(String[] values, String value) {
+        if (values != null) {
+            for (String v : values) {
+                if (v.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Reads the fields the inventory indexes on from the device API's answer, keeping the rest as JSON.
+    // The record is always kept under the IMEI it was fetched with, whatever ids the answer carries.
+    // Accepts the record on its own or wrapped in a "device" object, and groups given by name or as
+    // objects with a name.
+    static DeviceRecord parseRecord(String imei, String json) {
+        JsonObject object = JsonParser.parseString(json).getAsJsonObject();
+        if (object.has("device") && object.get("device").isJsonObject()) {
+            object = object.getAsJsonObject("device");
+        }
+        DeviceRecord record = new DeviceRecord();
+        record.imei = imei;
+        record.name = firstString(object, "name", "label", "device_name");
+        JsonElement groups = object.get("groups");
+        if (groups != null && groups.isJsonArray()) {
+            JsonArray array = groups.getAsJsonArray();
+            List<String> names = new ArrayList<>(array.size());
+            for (JsonElement group : array) {
+                String name = group.isJsonObject() ? firstString(group.getAsJsonObject(), "name", "id")
+                        : group.isJsonPrimitive() ? group.getAsString() : null;
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+            record.groups = names.toArray(new String[0]);
+        } else {
+            record.groups = new String[0];
+        }
+        record.json = json;
+        return record;
+    }
+
+    private static String firstString(JsonObject object, String... keys) {
+        for (String key : keys) {
+            JsonElement value = object.get(key);
+            if (value != null && value.isJsonPrimitive()) {
+                return value.getAsString();
+            }
+        }
+        return null;
+    }
+
+    private void scheduleRefresh() {
+        if (refreshPeriodNanos == 0 || closed || refreshScheduled) {
+            return;
+        }
+        synchronized (this) {
+            if (refreshScheduled) {
+                return;
+            }
+            refreshScheduled = true;
+        }
+        Relay.timer.schedule(() -> CompletionPool.execute(this::refreshSome), refreshPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // the background refresh: fetches the next few devices in turn, then waits a period before the next few
+    private void refreshSome() {
+        if (closed) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(devicesPerRefresh);
+        synchronized (tracked) {
+            int size = trackedInOrder.size();
+            if (size > 0) {
+                int count = Math.min(devicesPerRefresh, size);
+                for (int i = 0; i < count; i++) {
+                    batch.add(trackedInOrder.get((refreshCursor + i) % size));
+                }
+                refreshCursor = (refreshCursor + count) % size;
+            }
+        }
+        fetchAll(batch).whenComplete((v, e) -> {
+            synchronized (this) {
+                refreshScheduled = false;
+            }
+            scheduleRefresh();
+        });
+    }
+
+    /**
+     * Returns a future completed once the devices read from the snapshot file at startup
+     * have been fetched again, or have failed, and the snapshot saved anew. Until then,
+     * lookups of those devices may be answered from the snapshot.
+     * @return the future, already completed if there was no snapshot.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> getSnapshotRefresh() {
+        return snapshotRefresh;
+    }
+
+    /**
+     * Saves every record in the inventory to the snapshot file, replacing what it held.
+     * This also happens once the devices from the snapshot read at startup have been
+     * fetched again, and when the inventory is closed.
+     * @throws IOException if the file could not be written.
+     * @throws IllegalStateException if the inventory was built without a snapshot file.
+     */
+    public void saveSnapshot() throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("No snapshot file set");
+        }
+        List<DeviceRecord> records = new ArrayList<>(byImei.values());
+        if (snapshot != null) {
+            // devices that could not be fetched keep the record they were saved with
+            for (DeviceRecord saved : snapshot.records()) {
+                if (!byImei.containsKey(saved.imei)) {
+                    records.add(saved);
+                }
+            }
+        }
+        InventorySnapshot.write(snapshotFile, records);
+    }
+
+    private void saveSnapshotQuietly() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            saveSnapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to save inventory snapshot " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Returns the device's record.
+     * @param imei the IMEI of the device, such as 990007560023456.
+     * @return the record, or null if the device has not been loaded.
+     */
+    public DeviceRecord get(String imei) {
+        DeviceRecord record = byImei.get(imei);
+        if (record == null && snapshot != null) {
+            record = snapshot.get(imei);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the record of the device with the name.
+     * @param name the name of the device.
+     * @return the record, or null if no loaded device has the name.
+     */
+    public DeviceRecord findByName(String name) {
+        DeviceRecord record = byName.get(name);
+        if (record == null && snapshot != null) {
+            record = snapshot.findByName(name);
+            // a device fetched since had its name changed
+            if (record != null && byImei.containsKey(record.imei)) {
+                record = null;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Returns the records of the devices in the group.
+     * @param group the name of the group.
+     * @return the records of the group's loaded devices, empty if there are none.
+     */
+    public List<DeviceRecord> getGroupMembers(String group) {
+        Set<String> imeis = imeisByGroup.get(group);
+        if ((imeis == null || imeis.isEmpty()) && snapshot == null) {
+            return Collections.emptyList();
+        }
+        List<DeviceRecord> members = new ArrayList<>(imeis != null ? imeis.size() : 0);
+        if (imeis != null) {
+            for (String imei : imeis) {
+                DeviceRecord record = byImei.get(imei);
+                if (record != null) {
+                    members.add(record);
+                }
+            }
+        }
+        if (snapshot != null) {
+            // less those whose fetched record puts them elsewhere
+            for (DeviceRecord saved : snapshot.getGroupMembers(group)) {
+                if (!byImei.containsKey(saved.imei)) {
+                    members.add(saved);
+                }
+            }
+        }
+        return members;
+    }
+
+    /**
+     * @return how many devices have had their record fetched, not counting those only in the snapshot.
+     */
+    public int getDeviceCount() {
+        return byImei.size();
+    }
+
+    /**
+     * @return how many times a device's record has been fetched, including failures.
+     */
+    public long getFetchCount() {
+        return fetches.sum();
+    }
+
+    /**
+     * @return how many fetches of a device's record failed.
+     */
+    public long getFetchFailureCount() {
+        return fetchFailures.sum();
+    }
+
+    /**
+     * Stops the background refresh and saves the records to the snapshot file, if there
+     * is one. The records already fetched can still be looked up.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        saveSnapshotQuietly();
+    }
+
+    /**
+     * Configures a {@link FleetInventory}.
+     */
+    public static class Builder {
+        private final String accessToken;
+        private final String refreshToken;
+        private final String clientId;
+        private final String subscriberId;
+        private RelayHttpClient client;
+        private int maxInFlight = 32;
+        private Duration refreshPeriod;
+        private int devicesPerRefresh = 0;
+        private Path snapshotFile;
+
+        private Builder(String accessToken, String refreshToken, String clientId, String subscriberId) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.clientId = clientId;
+            this.subscriberId = subscriberId;
+        }
+
+        /**
+         * Sets the client to fetch devices with. Defaults to {@link Relay#getHttpClient()}.
+         * @param client the HTTP client.
+         * @return this builder.
+         */
+        public Builder httpClient(RelayHttpClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Sets how many devices may be fetched at once. Defaults to 32.
+         * @param maxInFlight the most fetches in flight.
+         * @return this builder.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Refreshes the records in the background, fetching the next few devices in turn
+         * every period. By default records are only fetched when loaded or refreshed.
+         * @param period how long to wait between one set of fetches and the next.
+         * @param devicesPerRefresh how many devices to fetch each time.
+         * @return this builder.
+         */
+        public Builder refreshEvery(Duration period, int devicesPerRefresh) {
+            if (period.isNegative() || period.isZero() || devicesPerRefresh < 1) {
+                throw new IllegalArgumentException("period and devicesPerRefresh must be positive");
+            }
+            this.refreshPeriod = period;
+            this.devicesPerRefresh = devicesPerRefresh;
+            return this;
+        }
+
+        /**
+         * Sets a file to save the records to and, if it exists, to answer lookups from at
+         * startup while its devices are fetched again. By default nothing is saved.
+         * @param snapshotFile the snapshot file.
+         * @return this builder.
+         */
+        public Builder snapshotFile(Path snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /**
+         * Creates the inventory, which is empty until devices are loaded unless the snapshot
+         * file has some.
+         * @return a new inventory.
+         */
+        public FleetInventory build() {
+            return new FleetInventory(this);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how many recorded values fall in each of a fixed set of buckets, to read off
+ * percentiles later.  Buckets double in width every eight, so a value is known to
+ * within an eighth of itself, from 1 up to 2<sup>40</sup> (about 18 minutes, in
+ * nanoseconds); larger values share the last bucket.  Recording is a single atomic
+ * add on one of several stripes of counters, chosen by thread, so it never allocates
+ * and threads recording at once rarely contend.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_BITS = 40;
+    static final int BUCKETS = (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    // each stripe is its buckets followed by the sum of its values and the largest of them
+    private static final int STRIPE_LENGTH = BUCKETS + 2;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+
+    private static int stripes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return Math.min(16, Integer.highestOneBit(Math.max(1, cpus - 1)) << 1);
+    }
+
+    /**
+     * Records a value.
+     * @param value the value, such as a latency in nanoseconds; negative values count as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        @SuppressWarnings("deprecation")
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LENGTH;
+        counts.getAndIncrement(stripe + bucketOf(value));
+        counts.getAndAdd(stripe + BUCKETS, value);
+        int maxIndex = stripe + BUCKETS + 1;
+        long max = counts.get(maxIndex);
+        while (value > max && !counts.compareAndSet(maxIndex, max, value)) {
+            max = counts.get(maxIndex);
+        }
+    }
+
+    // values below 2^SUB_BUCKET_BITS each have a bucket, above that each power of two is split into SUB_BUCKETS
+    static int bucketOf(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits <= SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        if (bits > MAX_BITS) {
+            return BUCKETS - 1;
+        }
+        int shift = bits - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // the largest value that falls in the bucket
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /**
+     * @return how many values have been recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                count += counts.get(stripe * STRIPE_LENGTH + bucket);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean of the values recorded, or 0 if there are none.
+     */
+    public double getMean() {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += counts.get(stripe * STRIPE_LENGTH + BUCKETS);
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * @return the largest value recorded, or 0 if there are none.
+     */
+    public long getMax() {
+        long max = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            max = Math.max(max, counts.get(stripe * STRIPE_LENGTH + BUCKETS + 1));
+        }
+        return max;
+    }
+
+    /**
+     * Returns a value that the given share of the recorded values are no larger than,
+     * give or take an eighth.
+     * @param percentile between 0 and 100, such as 99 for the 99th percentile.
+     * @return the value at the percentile, or 0 if there are none.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long n = counts.get(stripe * STRIPE_LENGTH + bucket);
+                merged[bucket] += n;
+                count += n;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += merged[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets every value recorded. Values recorded while it runs may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " p50=" + getValueAtPercentile(50) + " p99=" + getValueAtPercentile(99)
+                + " max=" + getMax();
+    }
+
+}
@@ -0,0 +1,106 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A session's idempotent queries that are waiting on the server, so that asking
+ * the same thing again before the answer arrives shares the request already in
+ * flight rather than sending another.  Only for requests whose answer depends on
+ * nothing but what is asked, such as reading a variable or device info.
+ */
+class InFlightRequests {
+
+    private final Map<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    // Sends the request, unless the same one is already in flight, in which case the caller shares
+    // its answer. Each caller gets its own future, so one caller cancelling it leaves the others be.
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> coalesce(RequestType type, String first, String second, String third,
+                                      Supplier<CompletableFuture<T>> send) {
+        Key key = new Key(type, first, second, third);
+        CompletableFuture<T> shared = (CompletableFuture<T>) inFlight.get(key);
+        if (shared == null) {
+            CompletableFuture<T> placeholder = new CompletableFuture<>();
+            shared = (CompletableFuture<T>) inFlight.putIfAbsent(key, placeholder);
+            if (shared == null) {
+                send(key, placeholder, send);
+                return placeholder.copy();
+            }
+        }
+        coalesced.increment();
+        return shared.copy();
+    }
+
+    private <T> void send(Key key, CompletableFuture<T> shared, Supplier<CompletableFuture<T>> send) {
+        CompletableFuture<T> sent;
+        try {
+            sent = send.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            return;
+        }
+        sent.whenComplete((value, e) -> {
+            // a later caller asks the server again
+            inFlight.remove(key, shared);
+            if (e != null) {
+                shared.completeExceptionally(e);
+            } else {
+                shared.complete(value);
+            }
+        });
+    }
+
+    // Later callers asking the same thing send a request of their own rather than share the one in
+    // flight, whose answer may predate a change they know about.
+    void forget(RequestType type, String first, String second, String third) {
+        inFlight.remove(new Key(type, first, second, third));
+    }
+
+    long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static final class Key {
+        private final RequestType type;
+        private final String first;
+        private final String second;
+        private final String third;
+        private final int hash;
+
+        Key(RequestType type, String first, String second, String third) {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hash = Objects.hash(type, first, second, third);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && Objects.equals(first, other.first)
+                    && Objects.equals(second, other.second) && Objects.equals(third, other.third);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the SDK's measurements in memory: a latency {@link Histogram} for each type of
+ * request, decode and callback times for each type of event, and counts of requests
+ * in flight, timed out and failed, and of orphaned responses.  Cheap enough to leave
+ * on in production; read it from a health endpoint or copy it into a metrics system
+ * on a schedule.  Only the first measurement of each type allocates, to create its
+ * histogram.
+ * <pre>
+ * InMemoryRelayMetrics metrics = new InMemoryRelayMetrics();
+ * Relay.setMetrics(metrics);
+ * ...
+ * long p99 = metrics.getRoundTripLatency(RequestType.Say).getValueAtPercentile(99);
+ * </pre>
+ */
+public class InMemoryRelayMetrics implements RelayMetrics {
+
+    private static final RequestType[] REQUEST_TYPES = RequestType.values();
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    // created the first time a type is recorded, as most workflows use few types and one for
+    // every type would take a few megabytes
+    private final AtomicReferenceArray<Histogram> roundTrips = new AtomicReferenceArray<>(REQUEST_TYPES.length);
+    private final AtomicReferenceArray<Histogram> decodes = new AtomicReferenceArray<>(EVENT_TYPES.length);
+    private final AtomicReferenceArray<Histogram> callbacks = new AtomicReferenceArray<>(EVENT_TYPES.length);
+    private final AtomicLongArray timeouts = new AtomicLongArray(REQUEST_TYPES.length);
+    private final AtomicLongArray failures = new AtomicLongArray(REQUEST_TYPES.length);
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder orphaned = new LongAdder();
+    private final Histogram eventQueueDepths = new Histogram();
+
+    private static Histogram histogram(AtomicReferenceArray<Histogram> histograms, int index) {
+        Histogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new Histogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    @Override
+    public void requestSent(RequestType type) {
+        inFlight.increment();
+    }
+
+    @Override
+    public void requestAnswered(RequestType type, long roundTripNanos) {
+        inFlight.decrement();
+        histogram(roundTrips, type.ordinal()).record(roundTripNanos);
+    }
+
+    @Override
+    public void requestTimedOut(RequestType type) {
+        inFlight.decrement();
+        timeouts.getAndIncrement(type.ordinal());
+    }
+
+    @Override
+    public void requestFailed(RequestType type) {
+        inFlight.decrement();
+        failures.getAndIncrement(type.ordinal());
+    }
+
+    @Override
+    public void orphanedResponse() {
+        orphaned.increment();
+    }
+
+    @Override
+    public void eventDecoded(EventType type, long decodeNanos) {
+        histogram(decodes, type.ordinal()).record(decodeNanos);
+    }
+
+    @Override
+    public void callbackCompleted(EventType type, long callbackNanos) {
+        histogram(callbacks, type.ordinal()).record(callbackNanos);
+    }
+
+    @Override
+    public void eventQueued(String workflowName, int depth) {
+        eventQueueDepths.record(depth);
+    }
+
+    /**
+     * @param type the type of request.
+     * @return the round-trip latencies, in nanoseconds, of requests of the type that got their response.
+     */
+    public Histogram getRoundTripLatency(RequestType type) {
+        return histogram(roundTrips, type.ordinal());
+    }
+
+    /**
+     * @param type the type of event.
+     * @return how long, in nanoseconds, decoding events of the type took.
+     */
+    public Histogram getDecodeTime(EventType type) {
+        return histogram(decodes, type.ordinal());
+    }
+
+    /**
+     * @param type the type of event, which names the {@link Workflow} method that handles it.
+     * @return how long, in nanoseconds, the workflow callbacks for events of the type ran.
+     */
+    public Histogram getCallbackTime(EventType type) {
+        return histogram(callbacks, type.ordinal());
+    }
+
+    /**
+     * @return how many events were waiting in their session's queue each time one was queued.
+     */
+    public Histogram getEventQueueDepth() {
+        return eventQueueDepths;
+    }
+
+    /**
+     * @return how many requests are waiting on their response, across all sessions.
+     */
+    public long getRequestsInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @param type the type of request.
+     * @return how many requests of the type timed out.
+     */
+    public long getTimeoutCount(RequestType type) {
+        return timeouts.get(type.ordinal());
+    }
+
+    /**
+     * @param type the type of request.
+     * @return how many requests of the type ended without a response for another reason.
+     */
+    public long getFailureCount(RequestType type) {
+        return failures.get(type.ordinal());
+    }
+
+    /**
+     * @return how many responses arrived for requests that were no longer waiting on them.
+     */
+    public long getOrphanedResponseCount() {
+        return orphaned.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("InMemoryRelayMetrics{inFlight=").append(getRequestsInFlight())
+                .append(", orphaned=").append(getOrphanedResponseCount());
+        for (RequestType type : REQUEST_TYPES) {
+            Histogram roundTrip = roundTrips.get(type.ordinal());
+            long timedOut = timeouts.get(type.ordinal());
+            long failed = failures.get(type.ordinal());
+            if (roundTrip != null || timedOut != 0 || failed != 0) {
+                s.append(", ").append(type).append("={").append(roundTrip != null ? roundTrip : "count=0")
+                        .append(" timeouts=").append(timedOut).append(" failures=").append(failed).append('}');
+            }
+        }
+        for (EventType type : EVENT_TYPES) {
+            Histogram callback = callbacks.get(type.ordinal());
+            if (callback != null) {
+                s.append(", ").append(type.callback()).append("={").append(callback).append('}');
+            }
+        }
+        return s.append('}').toString();
+    }
+
+}
@@ -0,0 +1,388 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link FleetInventory}'s records saved to a file that is read by mapping it into
+ * memory, so that after a restart devices can be looked up straight away, without
+ * first reading the whole file.  Alongside the records the file holds hash tables by
+ * IMEI, name and group, so a lookup only touches the pages it needs.
+ * <p>
+ * Layout, big-endian: a header of magic, version, record count, the offsets of the
+ * three tables and when the file was written; then the records, each an IMEI, name,
+ * group count, groups and JSON as length-prefixed UTF-8 (length -1 for null); then a
+ * posting list per group, the group's name followed by its record offsets; then each
+ * table, a power of two capacity followed by that many offsets, 0 for an empty slot.
+ * <p>
+ * Opening the file only checks the header and the tables' bounds, so as not to read it
+ * all. Should a lookup then run into a corrupt record, the snapshot is dropped: it logs
+ * a warning and answers every lookup after that as if it were empty.
+ */
+class InventorySnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshot.class);
+
+    private static final int MAGIC = 0x524c5949;    // "RLYI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int imeiTable;
+    private final int nameTable;
+    private final int groupTable;
+    private final long writtenAtMillis;
+    private volatile boolean corrupt = false;
+
+    private InventorySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an inventory snapshot");
+        }
+        this.recordCount = buffer.getInt(8);
+        this.imeiTable = buffer.getInt(12);
+        this.nameTable = buffer.getInt(16);
+        this.groupTable = buffer.getInt(20);
+        this.writtenAtMillis = buffer.getLong(24);
+        if (recordCount < 0) {
+            throw new IOException("Corrupt inventory snapshot: record count " + recordCount);
+        }
+        for (int table : new int[] {imeiTable, nameTable, groupTable}) {
+            if (table < HEADER_BYTES || table > buffer.capacity() - 4) {
+                throw new IOException("Corrupt inventory snapshot: table at " + table);
+            }
+            int capacity = buffer.getInt(table);
+            if (capacity <= 0 || Integer.bitCount(capacity) != 1 || table + 4 + 4L * capacity > buffer.capacity()) {
+                throw new IOException("Corrupt inventory snapshot: table at " + table + " of capacity " + capacity);
+            }
+        }
+    }
+
+    // maps the file, which stays readable even if it is replaced while mapped
+    static InventorySnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new InventorySnapshot(buffer);
+        }
+    }
+
+    // Writes the records to a new file and moves it over the old one, so a reader never sees half a snapshot.
+    static void write(Path file, Collection<DeviceRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, records.size() * 256));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[HEADER_BYTES]);
+
+        List<String> imeis = new ArrayList<>(records.size());
+        List<Integer> recordOffsets = new ArrayList<>(records.size());
+        List<String> names = new ArrayList<>();
+        List<Integer> namedOffsets = new ArrayList<>();
+        Map<String, List<Integer>> offsetsByGroup = new LinkedHashMap<>();
+        for (DeviceRecord record : records) {
+            int offset = out.size();
+            imeis.add(record.imei);
+            recordOffsets.add(offset);
+            if (record.name != null) {
+                names.add(record.name);
+                namedOffsets.add(offset);
+            }
+            writeString(out, record.imei);
+            writeString(out, record.name);
+            String[] groups = record.groups != null ? record.groups : new String[0];
+            out.writeInt(groups.length);
+            for (String group : groups) {
+                writeString(out, group);
+                offsetsByGroup.computeIfAbsent(group, g -> new ArrayList<>()).add(offset);
+            }
+            writeString(out, record.json);
+        }
+
+        List<String> groups = new ArrayList<>(offsetsByGroup.size());
+        List<Integer> postingOffsets = new ArrayList<>(offsetsByGroup.size());
+        for (Map.Entry<String, List<Integer>> group : offsetsByGroup.entrySet()) {
+            groups.add(group.getKey());
+            postingOffsets.add(out.size());
+            writeString(out, group.getKey());
+            out.writeInt(group.getValue().size());
+            for (int offset : group.getValue()) {
+                out.writeInt(offset);
+            }
+        }
+
+        int imeiTable = writeTable(out, imeis, recordOffsets);
+        int nameTable = writeTable(out, names, namedOffsets);
+        int groupTable = writeTable(out, groups, postingOffsets);
+        out.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, records.size());
+        buffer.putInt(12, imeiTable);
+        buffer.putInt(16, nameTable);
+        buffer.putInt(20, groupTable);
+        buffer.putLong(24, System.currentTimeMillis());
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // an open-addressed table at half load, placing each key's offset at the first free slot from its hash
+    private static int writeTable(DataOutputStream out, List<String> keys, List<Integer> offsets) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(2, keys.size() * 2) - 1) << 1;
+        int[] slots = new int[capacity];
+        for (int i = 0; i < keys.size(); i++) {
+            int slot = hash(keys.get(i)) & (capacity - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = offsets.get(i);
+        }
+        int tableOffset = out.size();
+        out.writeInt(capacity);
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+        return tableOffset;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // the record of the device, or null if the snapshot has none
+    DeviceRecord get(String imei) {
+        if (corrupt) {
+            return null;
+        }
+        try {
+            int offset = find(imeiTable, imei);
+            return offset != 0 ? readRecord(offset) : null;
+        } catch (RuntimeException e) {
+            return drop(e, null);
+        }
+    }
+
+    // the record of the device with the name, or null if the snapshot has none
+    DeviceRecord findByName(String name) {
+        if (corrupt) {
+            return null;
+        }
+        try {
+            int offset = find(nameTable, name);
+            return offset != 0 ? readRecord(offset) : null;
+        } catch (RuntimeException e) {
+            return drop(e, null);
+        }
+    }
+
+    // the records of the devices in the group, empty if the snapshot has none
+    List<DeviceRecord> getGroupMembers(String group) {
+        if (corrupt) {
+            return new ArrayList<>(0);
+        }
+        try {
+            int posting = find(groupTable, group);
+            if (posting == 0) {
+                return new ArrayList<>(0);
+            }
+            int position = posting + 4 + buffer.getInt(posting);
+            int count = buffer.getInt(position);
+            List<DeviceRecord> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                members.add(readRecord(buffer.getInt(position + 4 + i * 4)));
+            }
+            return members;
+        } catch (RuntimeException e) {
+            return drop(e, new ArrayList<>(0));
+        }
+    }
+
+    // every record in the snapshot, in the order they were written
+    List<DeviceRecord> records() {
+        if (corrupt) {
+            return new ArrayList<>(0);
+        }
+        try {
+            List<DeviceRecord> records = new ArrayList<>(recordCount);
+            int offset = HEADER_BYTES;
+            for (int i = 0; i < recordCount; i++) {
+                DeviceRecord record = new DeviceRecord();
+                offset = readRecord(offset, record);
+                records.add(record);
+            }
+            return records;
+        } catch (RuntimeException e) {
+            return drop(e, new ArrayList<>(0));
+        }
+    }
+
+    // the IMEI of every record in the snapshot, in the order they were written
+    List<String> imeis() {
+        if (corrupt) {
+            return new ArrayList<>(0);
+        }
+        try {
+            List<String> imeis = new ArrayList<>(recordCount);
+            int[] position = {HEADER_BYTES};
+            for (int i = 0; i < recordCount; i++) {
+                imeis.add(readString(position));
+                skipString(position);
+                int groups = readCount(position);
+                for (int g = 0; g < groups; g++) {
+                    skipString(position);
+                }
+                skipString(position);
+            }
+            return imeis;
+        } catch (RuntimeException e) {
+            return drop(e, new ArrayList<>(0));
+        }
+    }
+
+    // stops using a snapshot found to be corrupt, answering lookups as if it were empty from then on
+    private <T> T drop(RuntimeException e, T answer) {
+        if (!corrupt) {
+            corrupt = true;
+            logger.warn("Ignoring corrupt inventory snapshot", e);
+        }
+        return answer;
+    }
+
+    private void skipString(int[] position) {
+        position[0] += 4 + Math.max(0, stringLength(position[0]));
+    }
+
+    // the length of the string at the position, -1 for null, checked to lie within the file
+    private int stringLength(int position) {
+        int length = buffer.getInt(position);
+        if (length < -1 || length > buffer.capacity() - position - 4) {
+            throw new IllegalStateException("Corrupt string length " + length + " at " + position);
+        }
+        return length;
+    }
+
+    private int readCount(int[] position) {
+        int count = buffer.getInt(position[0]);
+        if (count < 0 || count > (buffer.capacity() - position[0]) / 4) {
+            throw new IllegalStateException("Corrupt count " + count + " at " + position[0]);
+        }
+        position[0] += 4;
+        return count;
+    }
+
+    int size() {
+        return recordCount;
+    }
+
+    long writtenAtMillis() {
+        return writtenAtMillis;
+    }
+
+    // Looks the key up in a table, comparing it with the string each candidate offset starts with:
+    // the IMEI or name for a record, the group name for a posting list.
+    private int find(int table, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int capacity = buffer.getInt(table);
+        int mask = capacity - 1;
+        for (int slot = hash(key) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int offset = buffer.getInt(table + 4 + slot * 4);
+            if (offset == 0) {
+                return 0;
+            }
+            int keyAt = table == nameTable ? offset + 4 + Math.max(0, buffer.getInt(offset)) : offset;
+            if (matches(keyAt, keyBytes)) {
+                return offset;
+            }
+        }
+        return 0;
+    }
+
+    private boolean matches(int position, byte[] key) {
+        if (buffer.getInt(position) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(position + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private DeviceRecord readRecord(int offset) {
+        DeviceRecord record = new DeviceRecord();
+        readRecord(offset, record);
+        return record;
+    }
+
+    // fills in the record at the offset, returning the offset of the next one
+    private int readRecord(int offset, DeviceRecord record) {
+        int[] position = {offset};
+        record.imei = readString(position);
+        record.name = readString(position);
+        int groups = readCount(position);
+        record.groups = new String[groups];
+        for (int i = 0; i < groups; i++) {
+            record.groups[i] = readString(position);
+        }
+        record.json = readString(position);
+        return position[0];
+    }
+
+    private String readString(int[] position) {
+        int length = stringLength(position[0]);
+        position[0] += 4;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position[0]);
+        slice.get(bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -4,72 +4,195 @@ package com.relaypro.sdk;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 class MessageWrapper {
     
     public String messageJson;
-    public Map<String, Object> parsedJson;
-    public Object eventObject;          // if this is an event, the parsed class representing the event
     public String eventOrResponse;      // event or response
     public String _type;            // the _type field from the message: wf_api_<type>_[event|response]
     public String type;             // the parsed message type from the _type field ie say, start, etc
+    public EventType eventType;     // if this is an event of a known type, which one
+    public String id;               // the _id, id or request_id field, whichever comes first, matching the message to a request
+    public String typeField;        // the message's own type field, if any, e.g. started or stopped for prompt events
 
     public boolean stopped = false;         // used to notify threads that the workflow has been stopped
+    long envelopeNanos;                     // how long decoding the envelope took, when metrics are on
+
+    // only the envelope above is decoded up front, these are built from messageJson on first use
+    private volatile Map<String, Object> parsedJson;
+    private volatile Object eventObject;
+
+    private static final String PREFIX = "wf_api_";
+    private static final String EVENT_SUFFIX = "_event";
+    private static final String RESPONSE_SUFFIX = "_response";
+
+    // every _type the SDK knows about, so a message's type is a single hash lookup
+    private static final Map<String, MessageType> MESSAGE_TYPES = new HashMap<>();
+    static {
+        for (EventType eventType : EventType.values()) {
+            register(eventType.value(), eventType);
+        }
+        for (RequestType requestType : RequestType.values()) {
+            String request = requestType.value();
+            register(request.substring(0, request.length() - "_request".length()) + RESPONSE_SUFFIX, null);
+        }
+        register("wf_api_progress_event", null);
+        register("wf_api_error_response", null);
+    }
+
+    private static final Gson gson = new Gson();
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
 
-    private static final Pattern eventPattern = Pattern.compile("^wf_api_(\\w+)_event$");
-    private static final Pattern responsePattern = Pattern.compile("^wf_api_(\\w+)_response$");
-    
     private static final Logger logger = LoggerFactory.getLogger(MessageWrapper.class);
     
     public static MessageWrapper parseMessage(String message) {
         MessageWrapper wrapper = new MessageWrapper();
         wrapper.messageJson = message;
-        parseMessage(wrapper);
+        try {
+            parseEnvelope(wrapper);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error parsing message: " + message, e);
+        }
         return wrapper;
     }
 
-    private static void parseMessage(MessageWrapper wrapper) {
-        // pass through both regexes, see which matches
-        Gson gson = new Gson();
-        Map<String, Object> msgJson = gson.fromJson(wrapper.messageJson, new TypeToken<Map<String, Object>>() {}.getType());
-        wrapper.parsedJson = RelayUtils.sanitize(msgJson);
-        String type = (String)msgJson.get("_type");
-        wrapper._type = type;
-
-        Matcher m = eventPattern.matcher(type);
-        if (m.matches()) {
-            String messageType = m.group(1);
-            wrapper.eventOrResponse = "event";
-            wrapper.type = messageType;
-            EventType eventType = EventType.getByType(type);
-            if (eventType != null) {
-                wrapper.eventObject = gson.fromJson(wrapper.messageJson, eventType.eventClass());
+    // Reads just the top-level fields needed to route the message, skipping over everything else.
+    private static void parseEnvelope(MessageWrapper wrapper) throws IOException {
+        int idRank = Integer.MAX_VALUE;
+        JsonReader reader = new JsonReader(new StringReader(wrapper.messageJson));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+                continue;
             }
-            else {
-                logger.error("Unknown event type: " + type);
+            int rank = idRank(name);
+            if (rank >= 0) {
+                String value = reader.nextString();
+                if (rank < idRank) {
+                    wrapper.id = value;
+                    idRank = rank;
+                }
+            } else if (name.equals("_type")) {
+                wrapper._type = reader.nextString();
+            } else if (name.equals("type")) {
+                wrapper.typeField = reader.nextString();
+            } else {
+                reader.skipValue();
             }
         }
-        else {
-            m = responsePattern.matcher(type);
-            if (m.matches()) {
-                String messageType = m.group(1);
-                wrapper.eventOrResponse = "response";
-                wrapper.type = messageType;
+        reader.endObject();
+
+        String type = wrapper._type;
+        MessageType messageType = type != null ? MESSAGE_TYPES.get(type) : null;
+        if (messageType == null && type != null) {
+            messageType = MessageType.of(type, null);
+        }
+        if (messageType == null) {
+            logger.error("Unknown message type: " + type);
+            return;
+        }
+        wrapper.eventOrResponse = messageType.eventOrResponse;
+        wrapper.type = messageType.type;
+        wrapper.eventType = messageType.eventType;
+        if (messageType.eventType == null && "event".equals(messageType.eventOrResponse) && !"progress".equals(messageType.type)) {
+            logger.error("Unknown event type: " + type);
+        }
+    }
+
+    /**
+     * Returns the whole message as a map, decoding it on first use.
+     */
+    Map<String, Object> parsedJson() {
+        Map<String, Object> map = parsedJson;
+        if (map == null && messageJson != null) {
+            try {
+                map = RelayUtils.sanitize(gson.fromJson(messageJson, MAP_TYPE));
+            } catch (RuntimeException e) {
+                logger.error("Error parsing message: " + messageJson, e);
+                map = new HashMap<>();
             }
+            parsedJson = map;
+        }
+        return map;
+    }
+
+    /**
+     * If this is an event of a known type, returns the parsed class representing the
+     * event, decoding it on first use. Otherwise returns null.
+     */
+    Object eventObject() {
+        Object event = eventObject;
+        if (event == null && eventType != null) {
+            try {
+                event = gson.fromJson(messageJson, eventType.eventClass());
+            } catch (RuntimeException e) {
+                logger.error("Error parsing event: " + messageJson, e);
+                return null;
+            }
+            eventObject = event;
+        }
+        return event;
+    }
+
+    // the fields that can carry the id of the request a message belongs to, in order of precedence
+    private static int idRank(String name) {
+        switch (name) {
+            case "_id": return 0;
+            case "id": return 1;
+            case "request_id": return 2;
+            default: return -1;
+        }
+    }
+
+    private static void register(String _type, EventType eventType) {
+        MessageType messageType = MessageType.of(_type, eventType);
+        if (messageType != null) {
+            MESSAGE_TYPES.put(_type, messageType);
         }
     }
-    
     
     static MessageWrapper stopMessage() {
         MessageWrapper mw = new MessageWrapper();
         mw.stopped = true;
         return mw;
     }
+
+    // what a _type of wf_api_<type>_[event|response] says about the message
+    private static class MessageType {
+        final String eventOrResponse;
+        final String type;
+        final EventType eventType;
+
+        private MessageType(String eventOrResponse, String type, EventType eventType) {
+            this.eventOrResponse = eventOrResponse;
+            this.type = type;
+            this.eventType = eventType;
+        }
+
+        static MessageType of(String _type, EventType eventType) {
+            if (!_type.startsWith(PREFIX)) {
+                return null;
+            }
+            if (_type.endsWith(EVENT_SUFFIX) && _type.length() > PREFIX.length() + EVENT_SUFFIX.length()) {
+                return new MessageType("event", _type.substring(PREFIX.length(), _type.length() - EVENT_SUFFIX.length()), eventType);
+            }
+            if (_type.endsWith(RESPONSE_SUFFIX) && _type.length() > PREFIX.length() + RESPONSE_SUFFIX.length()) {
+                return new MessageType("response", _type.substring(PREFIX.length(), _type.length() - RESPONSE_SUFFIX.length()), null);
+            }
+            return null;
+        }
+    }
     
 }
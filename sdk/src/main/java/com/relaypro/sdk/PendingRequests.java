@@ -0,0 +1,109 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A session's requests that have been sent and are waiting on their responses, by
+ * request id.  A call is removed as soon as it completes, however it completes, and
+ * the number of calls in flight at once is capped.  Messages that match no call in
+ * flight are counted: as late if they belong to a request that recently completed,
+ * otherwise as orphaned.
+ */
+class PendingRequests {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingRequests.class);
+
+    // how many completed request ids are remembered to tell late messages from orphaned ones
+    private static final int RECENT_IDS = 256;
+
+    private final Map<String, Call<?>> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong lateResponses = new AtomicLong();
+    private final AtomicLong orphanedResponses = new AtomicLong();
+
+    // guarded by itself
+    private final Map<String, Boolean> recentlyCompleted = new LinkedHashMap<String, Boolean>(RECENT_IDS * 2, 0.75f) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECENT_IDS;
+        }
+    };
+
+    // Returns false, without adding the call, if maxInFlight calls are already in flight.
+    boolean add(String id, Call<?> call, int maxInFlight) {
+        if (size.incrementAndGet() > maxInFlight) {
+            size.decrementAndGet();
+            return false;
+        }
+        calls.put(id, call);
+        call.onDone(() -> remove(id, call));
+        return true;
+    }
+
+    private void remove(String id, Call<?> call) {
+        if (calls.remove(id, call)) {
+            size.decrementAndGet();
+            synchronized (recentlyCompleted) {
+                recentlyCompleted.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    // Returns the call in flight for the id, or null if there is none.
+    Call<?> get(String id) {
+        Call<?> call = calls.get(id);
+        if (call == null) {
+            boolean late;
+            synchronized (recentlyCompleted) {
+                late = recentlyCompleted.containsKey(id);
+            }
+            if (late) {
+                lateResponses.incrementAndGet();
+                logger.debug("Message arrived after its request completed: " + id);
+            } else {
+                orphanedResponses.incrementAndGet();
+                logger.warn("Message arrived for unknown request: " + id);
+            }
+        }
+        return call;
+    }
+
+    void forEach(Consumer<Call<?>> action) {
+        calls.values().forEach(action);
+    }
+
+    // Times out every call whose response timeout or deadline has passed. The per-call timers
+    // normally get there first, this guarantees nothing is left behind.
+    int expire(long nowNanos) {
+        int expired = 0;
+        for (Call<?> call : calls.values()) {
+            if (call.expiresAt() - nowNanos < 0 && call.timeout()) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long lateResponses() {
+        return lateResponses.get();
+    }
+
+    long orphanedResponses() {
+        return orphanedResponses.get();
+    }
+
+}
@@ -18,28 +18,36 @@ import com.relaypro.sdk.types.TimerType;
 import com.relaypro.sdk.types.Trigger;
 
 import jakarta.websocket.EncodeException;
+import jakarta.websocket.RemoteEndpoint;
 import jakarta.websocket.Session;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.net.HttpRetryException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static java.util.Map.entry;
 
@@ -48,64 +56,482 @@ import static java.util.Map.entry;
  */
 public class Relay {
 
-    private static final Map<String, Workflow> WORKFLOWS = new HashMap<>();
-    private static final Map<Session, Relay> runningWorkflowsBySession = new ConcurrentHashMap<>();
+    private static final Map<String, WorkflowRegistration> WORKFLOWS = new ConcurrentHashMap<>();
+    // each session's Relay is kept in the session's user properties under this key
+    private static final String SESSION_PROPERTY = Relay.class.getName();
+    // the running sessions of each workflow, for the gauges and the expiry sweep; stopWorkflow() removes them
+    private static final Map<String, Set<Relay>> runningWorkflowsByName = new ConcurrentHashMap<>();
 
     static final Gson gson = new GsonBuilder().serializeNulls().create();
     private static final Logger logger = LoggerFactory.getLogger(Relay.class);
 
     private static final int RESPONSE_TIMEOUT_SECS = 10;
+    private static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+    private static final int EXPIRY_SWEEP_SECS = 10;
+
+    private static volatile ExecutionMode executionMode = ExecutionMode.PlatformThread;
+    private static volatile int maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+    private static volatile int eventQueueCapacity = Integer.MAX_VALUE;
+    private static volatile EventQueueOverflowPolicy eventQueueOverflowPolicy = EventQueueOverflowPolicy.Block;
+    private static volatile VariableCacheMode variableCacheMode = VariableCacheMode.Off;
+    private static final Map<String, EventQueue.Stats> eventQueueStatsByWorkflow = new ConcurrentHashMap<>();
+    static volatile RelayMetrics metrics = RelayMetrics.NOOP;
+
+    // how long a request may go without hearing back, and how long it may take overall; 0 means not set
+    private static volatile long responseTimeoutNanos = TimeUnit.SECONDS.toNanos(RESPONSE_TIMEOUT_SECS);
+    private static volatile long requestDeadlineNanos = 0;
+    private static final AtomicLongArray responseTimeoutNanosByType = new AtomicLongArray(RequestType.values().length);
+    private static final AtomicLongArray requestDeadlineNanosByType = new AtomicLongArray(RequestType.values().length);
+
+    // a deadline set with withDeadline() for the requests the current thread sends
+    private static final ThreadLocal<long[]> scopedDeadline = new ThreadLocal<>();
+
+    // Times out requests whose response never arrives, and paces rate limited bulk triggers. Its tasks
+    // only find what is due; completing the futures is left to the CompletionPool.
+    static final HashedWheelTimer timer = new HashedWheelTimer("relay-request-timer", 100, TimeUnit.MILLISECONDS, 512);
+    static {
+        scheduleExpirySweep();
+    }
 
     // holds the Workflow clone, and the session
     Workflow workflow;
+    private final WorkflowRegistration registration;
+    private final String workflowName;
     private final Session session;
-    BlockingQueue<MessageWrapper> messageQueue = new LinkedBlockingDeque<>();
-    private final Map<String, Call> pendingRequests = new ConcurrentHashMap<>();
-
-    private Relay(Workflow workflow, Session session) {
+    final EventQueue messageQueue;
+    private final PendingRequests pendingRequests = new PendingRequests();
+    private final RequestIds requestIds = new RequestIds();
+    private final Worker worker;
+    private volatile boolean stopped = false;
+    private final AtomicBoolean closing = new AtomicBoolean(false);     // set by whoever closes the session after a stop event
+    private volatile HashedWheelTimer.Timeout stopFallback;              // closes the session should onStop overrun
+    private final ExecutorService executor;         // null in the shared pool mode
+    private final Lock sendLock = new ReentrantLock();
+    private final RequestEncoder encoder = new RequestEncoder();      // only used while holding sendLock
+    private final DeviceInfoCache deviceInfoCache = new DeviceInfoCache();
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
+    private final VariableCache variables = new VariableCache(variableCacheMode);
+
+    private Relay(Workflow workflow, WorkflowRegistration registration, String workflowName, Session session) {
         this.workflow = workflow;
+        this.registration = registration;
+        this.workflowName = workflowName;
         this.session = session;
-        // start a thread that handles running the workflow code
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(new Worker(this));
-        runningWorkflowsBySession.put(session, this);
+        this.messageQueue = new EventQueue(eventQueueCapacity, eventQueueOverflowPolicy,
+                eventQueueStatsByWorkflow.computeIfAbsent(workflowName, name -> new EventQueue.Stats()));
+        this.worker = new Worker(this);
+        if (executionMode == ExecutionMode.SharedPool) {
+            // the worker is scheduled onto the shared pool whenever a message is queued
+            this.executor = null;
+        } else {
+            // start a thread that handles running the workflow code
+            this.executor = WorkerThreads.newSessionExecutor(executionMode);
+            this.executor.submit(this.worker);
+        }
+        session.getUserProperties().put(SESSION_PROPERTY, this);
+        runningWorkflowsByName.computeIfAbsent(workflowName, name -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    /**
+     * Sets how the workflow code for each new session is run. Sessions that
+     * have already started keep the mode they were started with. Defaults to
+     * {@link ExecutionMode#PlatformThread}.
+     * @param mode the execution mode for sessions started from now on.
+     */
+    @SuppressWarnings("unused")
+    public static void setExecutionMode(ExecutionMode mode) {
+        logger.debug("Setting execution mode: " + mode);
+        executionMode = mode;
+    }
+
+    /**
+     * Returns how the workflow code for new sessions is run.
+     * @return the current execution mode.
+     * @see #setExecutionMode(ExecutionMode)
+     */
+    @SuppressWarnings("unused")
+    public static ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets how many requests a single session may have waiting on a response at
+     * once. A request made while the limit is reached fails straight away, in
+     * the same way as a request that could not be sent. Defaults to 1024.
+     * @param max the maximum number of requests in flight per session.
+     */
+    @SuppressWarnings("unused")
+    public static void setMaxPendingRequests(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be at least 1: " + max);
+        }
+        maxPendingRequests = max;
+    }
+
+    /**
+     * Limits how many events each new session holds for its workflow while the
+     * workflow's callbacks are busy, and sets what happens to events that arrive
+     * when that many are already waiting. Sessions that have already started keep
+     * the limit they were started with. By default there is no limit.
+     * @param capacity the most events a session queues up.
+     * @param policy what to do with an event that arrives when the queue is full.
+     */
+    @SuppressWarnings("unused")
+    public static void setEventQueueCapacity(int capacity, EventQueueOverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        eventQueueCapacity = capacity;
+        eventQueueOverflowPolicy = policy;
+    }
+
+    /**
+     * Sets whether each new session keeps its own copy of the workflow's variables,
+     * and when changes to them are sent to the server. Sessions that have already
+     * started keep the mode they were started with. Defaults to
+     * {@link VariableCacheMode#Off}, so that every read sees changes made elsewhere.
+     * @param mode the variable cache mode for new sessions.
+     */
+    @SuppressWarnings("unused")
+    public static void setVariableCacheMode(VariableCacheMode mode) {
+        variableCacheMode = mode;
+    }
+
+    /**
+     * Sets how long the answer to a device info query is reused before the device
+     * is asked again. Each session keeps its own answers, and passing
+     * {@code refresh} as true to any of the device info calls always asks again.
+     * By default the name, id, type and username of a device are kept for 5
+     * minutes, and its battery, location and whether location is enabled for 15
+     * seconds.
+     * @param query the kind of device information.
+     * @param ttl how long to keep it, or zero to always ask the device.
+     */
+    @SuppressWarnings("unused")
+    public static void setDeviceInfoTtl(DeviceInfoQueryType query, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+        }
+        DeviceInfoCache.ttlNanos.set(query.ordinal(), ttl.toNanos());
+    }
+
+    /**
+     * Sets how long a request waits without hearing anything back from the server
+     * before it times out. Each message about the request, such as a progress
+     * event, starts the wait again. Defaults to 10 seconds.
+     * @param timeout the response timeout for every type of request without one of its own.
+     */
+    @SuppressWarnings("unused")
+    public static void setResponseTimeout(Duration timeout) {
+        responseTimeoutNanos = positiveNanos(timeout);
+    }
+
+    /**
+     * Sets the response timeout for one type of request, in place of the one set
+     * with {@link #setResponseTimeout(Duration)}.
+     * @param type the type of request.
+     * @param timeout the response timeout for that type, or null to go back to the default.
+     */
+    @SuppressWarnings("unused")
+    public static void setResponseTimeout(RequestType type, Duration timeout) {
+        responseTimeoutNanosByType.set(type.ordinal(), timeout == null ? 0 : positiveNanos(timeout));
+    }
+
+    /**
+     * Sets how long a request may take overall, from being sent to completing,
+     * however many progress messages arrive in the meantime. Not set by default,
+     * so a request that keeps hearing back can wait indefinitely.
+     * @param deadline the deadline for every type of request without one of its own, or null for none.
+     */
+    @SuppressWarnings("unused")
+    public static void setRequestDeadline(Duration deadline) {
+        requestDeadlineNanos = deadline == null ? 0 : positiveNanos(deadline);
+    }
+
+    /**
+     * Sets the overall deadline for one type of request, in place of the one set
+     * with {@link #setRequestDeadline(Duration)}.
+     * @param type the type of request.
+     * @param deadline the deadline for that type, or null to go back to the default.
+     */
+    @SuppressWarnings("unused")
+    public static void setRequestDeadline(RequestType type, Duration deadline) {
+        requestDeadlineNanosByType.set(type.ordinal(), deadline == null ? 0 : positiveNanos(deadline));
+    }
+
+    /**
+     * Sets where measurements of request round trips, event decoding, workflow
+     * callbacks and event queue depths are sent, such as an
+     * {@link InMemoryRelayMetrics} or an adapter to the application's own metrics
+     * system. Defaults to {@link RelayMetrics#NOOP}, which measures nothing.
+     * Requests already sent report to the metrics they were sent with.
+     * @param relayMetrics the metrics to report to from now on.
+     */
+    @SuppressWarnings("unused")
+    public static void setMetrics(RelayMetrics relayMetrics) {
+        if (relayMetrics == null) {
+            throw new IllegalArgumentException("metrics must not be null");
+        }
+        metrics = relayMetrics;
+    }
+
+    /**
+     * Returns where measurements are sent, as set with {@link #setMetrics(RelayMetrics)}.
+     * @return the current metrics.
+     */
+    @SuppressWarnings("unused")
+    public static RelayMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static long positiveNanos(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration must be positive: " + duration);
+        }
+        return duration.toNanos();
+    }
+
+    /**
+     * Runs an action, giving every request it sends from this thread a deadline
+     * to complete by. The deadline holds however many progress messages arrive,
+     * and applies on top of any configured with {@link #setRequestDeadline(Duration)}.
+     * For example, to listen for at most 30 seconds:
+     * <pre>
+     * String heard = relay.withDeadline(Duration.ofSeconds(30), () -&gt; relay.listen(sourceUri, "request"));
+     * </pre>
+     * @param deadline how long the action's requests may take, measured from now.
+     * @param action the action to run.
+     * @param <T> the type of the action's result.
+     * @return the action's result.
+     */
+    @SuppressWarnings("unused")
+    public <T> T withDeadline(Duration deadline, Supplier<T> action) {
+        long[] outer = scopedDeadline.get();
+        long at = System.nanoTime() + positiveNanos(deadline);
+        if (outer != null && outer[0] - at < 0) {
+            at = outer[0];
+        }
+        scopedDeadline.set(new long[]{at});
+        try {
+            return action.get();
+        } finally {
+            if (outer == null) {
+                scopedDeadline.remove();
+            } else {
+                scopedDeadline.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Runs an action, giving every request it sends from this thread a deadline to complete by.
+     * @param deadline how long the action's requests may take, measured from now.
+     * @param action the action to run.
+     * @see #withDeadline(Duration, Supplier)
+     */
+    @SuppressWarnings("unused")
+    public void withDeadline(Duration deadline, Runnable action) {
+        withDeadline(deadline, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns how many of this session's requests are waiting on a response.
+     * @return the number of requests in flight.
+     */
+    @SuppressWarnings("unused")
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Returns how many messages have arrived for one of this session's requests
+     * after that request had already completed, for example after it timed out.
+     * @return the number of late responses.
+     */
+    @SuppressWarnings("unused")
+    public long getLateResponseCount() {
+        return pendingRequests.lateResponses();
+    }
+
+    /**
+     * Returns how many messages have arrived for a request this session does not know about.
+     * @return the number of orphaned responses.
+     */
+    @SuppressWarnings("unused")
+    public long getOrphanedResponseCount() {
+        return pendingRequests.orphanedResponses();
+    }
+
+    /**
+     * Returns how many of this session's queries shared the answer to an identical
+     * query that was already waiting on the server, rather than being sent again.
+     * This applies to reading variables, device info, the unread inbox size, group
+     * membership and translations.
+     * @return the number of coalesced queries.
+     */
+    @SuppressWarnings("unused")
+    public long getCoalescedRequestCount() {
+        return inFlightRequests.coalesced();
+    }
+
+    /**
+     * Returns how many events are waiting for this session's workflow to handle them.
+     * @return the depth of the event queue.
+     */
+    @SuppressWarnings("unused")
+    public int getEventQueueDepth() {
+        return messageQueue.size();
+    }
+
+    /**
+     * Returns the most events that have been waiting at once for this session's workflow.
+     * @return the high-water mark of the event queue.
+     */
+    @SuppressWarnings("unused")
+    public int getEventQueueHighWaterMark() {
+        return messageQueue.highWaterMark();
+    }
+
+    /**
+     * Returns how many events this session dropped because its event queue was full.
+     * @return the number of dropped events.
+     * @see #setEventQueueCapacity(int, EventQueueOverflowPolicy)
+     */
+    @SuppressWarnings("unused")
+    public long getDroppedEventCount() {
+        return messageQueue.dropped();
+    }
+
+    /**
+     * Returns how many events are waiting to be handled across all running sessions of a workflow.
+     * @param workflowName the name the workflow was added with.
+     * @return the total depth of those sessions' event queues.
+     */
+    @SuppressWarnings("unused")
+    public static int getEventQueueDepth(String workflowName) {
+        Set<Relay> running = runningWorkflowsByName.get(workflowName);
+        if (running == null) {
+            return 0;
+        }
+        int depth = 0;
+        for (Relay relay : running) {
+            depth += relay.messageQueue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the most events that have been waiting at once in any one session of a workflow.
+     * @param workflowName the name the workflow was added with.
+     * @return the highest high-water mark of its sessions' event queues, including sessions that have ended.
+     */
+    @SuppressWarnings("unused")
+    public static int getEventQueueHighWaterMark(String workflowName) {
+        EventQueue.Stats stats = eventQueueStatsByWorkflow.get(workflowName);
+        return stats != null ? stats.highWaterMark() : 0;
+    }
+
+    /**
+     * Returns how many events the sessions of a workflow dropped because their event queues were full.
+     * @param workflowName the name the workflow was added with.
+     * @return the number of dropped events, including those of sessions that have ended.
+     */
+    @SuppressWarnings("unused")
+    public static long getDroppedEventCount(String workflowName) {
+        EventQueue.Stats stats = eventQueueStatsByWorkflow.get(workflowName);
+        return stats != null ? stats.dropped() : 0;
+    }
+
+    // how many sessions are running, across all workflows
+    static int getRunningSessionCount() {
+        int count = 0;
+        for (Set<Relay> running : runningWorkflowsByName.values()) {
+            count += running.size();
+        }
+        return count;
     }
 
     /**
      * Adds a workflow to the path. Maps the specified name of the workflow 
-     * to the new instance of the workflow class created.
+     * to the new instance of the workflow class created. Each session gets a
+     * shallow copy of it made with {@link Workflow#clone()}, so any object its
+     * fields refer to is shared by every session; use
+     * {@link #addWorkflow(String, Supplier)} to give each session its own.
      * @param name a name for your workflow.
      * @param wf a new instance of a class that contains your workflow.
      */
     public static void addWorkflow(String name, Workflow wf) {
         logger.debug("Adding workflow with name: " + name);
-        WORKFLOWS.put(name, wf);
+        WORKFLOWS.put(name, WorkflowRegistration.ofPrototype(name, wf));
+    }
+
+    /**
+     * Adds a workflow to the path, creating a new instance of it for each session.
+     * <pre>
+     * Relay.addWorkflow("hellopath", MyWorkflow::new);
+     * </pre>
+     * @param name a name for your workflow.
+     * @param factory creates an instance of the workflow for a new session.
+     */
+    public static void addWorkflow(String name, Supplier<? extends Workflow> factory) {
+        addWorkflow(name, factory, 0);
+    }
+
+    /**
+     * Adds a workflow to the path, and keeps up to the given number of instances
+     * from sessions that have ended to hand to new ones, which saves creating them
+     * when many devices connect at once. When a session ends, its instance is
+     * cleared with {@link Workflow#reset()} before it is kept, and a new instance
+     * is only created when none is waiting.
+     * @param name a name for your workflow.
+     * @param factory creates an instance of the workflow when none is waiting.
+     * @param poolSize the most instances to keep, or 0 to create one for every session.
+     */
+    public static void addWorkflow(String name, Supplier<? extends Workflow> factory, int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("poolSize must not be negative: " + poolSize);
+        }
+        logger.debug("Adding workflow with name: " + name);
+        WORKFLOWS.put(name, new WorkflowRegistration(name, factory, poolSize));
     }
 
     public static void startWorkflow(Session session, String workflowName) {
-        Workflow wf = WORKFLOWS.get(workflowName);
-        if (wf == null) {
+        WorkflowRegistration registration = WORKFLOWS.get(workflowName);
+        if (registration == null) {
             logger.error("No workflow registered with name " + workflowName);
             stopWorkflow(session, "invalid_workflow_name");
             return;
         }
 
-        // create a clone of the workflow object
-        Workflow wfClone;
+        // a fresh or reset instance of the workflow for this session
+        Workflow wf;
         try {
-            wfClone = (Workflow) wf.clone();
-        } catch (CloneNotSupportedException e) {
-            logger.error("Error cloning workflow", e);
+            wf = registration.acquire();
+        } catch (RuntimeException e) {
+            logger.error("Error creating workflow", e);
             // stop ws connection
             stopWorkflow(session, "workflow_instantiation_error");
             return;
         }
 
-        new Relay(wfClone, session);
+        new Relay(wf, registration, workflowName, session);
 
         logger.info("Workflow instance started for {}", workflowName);
     }
 
+    // Called by the worker once it has handled the session's last event, so no callback is running.
+    void workflowFinished() {
+        cancelStopFallback();
+        Workflow finished = workflow;
+        if (finished != null) {
+            workflow = null;
+            registration.release(finished);
+        }
+    }
+
     public static void stopWorkflow(Session session, String reason) {
         logger.info("Workflow instance terminating, reason: {}", reason);
         try {
@@ -115,118 +541,382 @@ public class Relay {
         }
 
         // shut down worker, if running, by sending poison pill to its message queue and call queues
-        Relay wfWrapper = runningWorkflowsBySession.get(session);
+        Relay wfWrapper = (Relay) session.getUserProperties().remove(SESSION_PROPERTY);
         if (wfWrapper != null) {
-            wfWrapper.pendingRequests.forEach((id, call) -> call.responseQueue.add(MessageWrapper.stopMessage()));
-            wfWrapper.messageQueue.add(MessageWrapper.stopMessage());
+            Set<Relay> running = runningWorkflowsByName.get(wfWrapper.workflowName);
+            if (running != null) {
+                running.remove(wfWrapper);
+            }
+            wfWrapper.stopped = true;
+            wfWrapper.pendingRequests.forEach(call -> call.fail(new CancellationException("Workflow stopped")));
+            wfWrapper.enqueue(MessageWrapper.stopMessage());
+            // the worker exits once it takes the poison pill, after which the executor's thread ends
+            if (wfWrapper.executor != null) {
+                wfWrapper.executor.shutdown();
+            }
         }
     }
 
     // Called on websocket thread, 
     public static void receiveMessage(Session session, String message) {
         // decode what message type it is, event/response, get the running wf, call the appropriate callback
-        Relay wfWrapper = runningWorkflowsBySession.get(session);
-        MessageWrapper msgWrapper = MessageWrapper.parseMessage(message);
+        Relay wfWrapper = (Relay) session.getUserProperties().get(SESSION_PROPERTY);
+        if (wfWrapper == null) {
+            logger.warn("Message received for a session with no running workflow: " + message);
+            return;
+        }
+        RelayMetrics relayMetrics = metrics;
+        MessageWrapper msgWrapper;
+        if (relayMetrics == RelayMetrics.NOOP) {
+            msgWrapper = MessageWrapper.parseMessage(message);
+        } else {
+            long start = System.nanoTime();
+            msgWrapper = MessageWrapper.parseMessage(message);
+            msgWrapper.envelopeNanos = System.nanoTime() - start;
+        }
 
-        if (msgWrapper.eventOrResponse.equals("event")) {
+        if ("event".equals(msgWrapper.eventOrResponse)) {
             // prompt, progress, and speech events need to be sent to the matching calls as well as to event callbacks
             if (msgWrapper.type.equals("prompt") || msgWrapper.type.equals("progress") || msgWrapper.type.equals("speech")) {
                 handleResponse(msgWrapper, wfWrapper);
             }
 
-            // send this through the message queue to the worker thread
-            wfWrapper.messageQueue.add(msgWrapper);
-
-            // if this is a stop event, need to shut everything down after we just called the onStop callback
-            if (msgWrapper.type.equals("stop")) {
-                StopEvent stopEvent = (StopEvent)msgWrapper.eventObject;
-                stopWorkflow(session, stopEvent.reason);
+            // if this is a stop event, the worker shuts everything down once the onStop callback has returned
+            if (msgWrapper.eventType == EventType.Stop) {
+                wfWrapper.stopping(msgWrapper);
             }
+
+            // send this through the message queue to the worker thread
+            wfWrapper.enqueue(msgWrapper);
         }
         // if response, match to request
-        else if (msgWrapper.eventOrResponse.equals("response")) {
-            handleResponse(msgWrapper, wfWrapper);
+        else if ("response".equals(msgWrapper.eventOrResponse)) {
+            if (!handleResponse(msgWrapper, wfWrapper) && msgWrapper.id != null) {
+                relayMetrics.orphanedResponse();
+            }
         }
     }
 
-    private static void handleResponse(MessageWrapper msgWrapper, Relay wfWrapper) {
-        String id = null;
-        if (msgWrapper.parsedJson.containsKey("_id")) {
-            id = (String) msgWrapper.parsedJson.get("_id");
-        } else if (msgWrapper.parsedJson.containsKey("id")) {
-            id = (String) msgWrapper.parsedJson.get("id");
-        } else if (msgWrapper.parsedJson.containsKey("request_id")) {
-            id = (String) msgWrapper.parsedJson.get("request_id");
-        }
-        if (id == null) {
+    // Called on the websocket thread when the stop event arrives, before it is queued. Requests already
+    // waiting will not be answered, so they are failed, which also frees a callback blocked on one. Requests
+    // sent by onStop itself still go out. Should onStop not return within the response timeout, the
+    // session is closed anyway, off the timer thread as closing it may block.
+    private void stopping(MessageWrapper stopEvent) {
+        pendingRequests.forEach(call -> call.fail(new CancellationException("Workflow stopped")));
+        stopFallback = timer.schedule(() -> CompletionPool.execute(() -> finishStop(stopEvent)),
+                responseTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Called by the worker once the onStop callback has returned: sends the variables still held back,
+    // including any that onStop wrote, then closes the session.
+    void finishStop(MessageWrapper stopEvent) {
+        cancelStopFallback();
+        if (stopped || !closing.compareAndSet(false, true)) {
             return;
         }
-        Call matchingCall = wfWrapper.pendingRequests.get(id);
-        matchingCall.responseQueue.add(msgWrapper);
+        if (variables.hasChanges()) {
+            flushVarsAsync();
+        }
+        StopEvent event = (StopEvent) stopEvent.eventObject();
+        stopWorkflow(session, event != null ? event.reason : "stop");
     }
 
-    private MessageWrapper sendRequest(Map<String, Object> message) throws EncodeException, IOException, InterruptedException {
-        return sendRequest(message, false);
+    // so that a session that has stopped is not kept reachable by the timer until the fallback is due
+    private void cancelStopFallback() {
+        HashedWheelTimer.Timeout fallback = stopFallback;
+        if (fallback != null) {
+            stopFallback = null;
+            fallback.cancel();
+        }
     }
 
-    private MessageWrapper sendRequest(Map<String, Object> message, boolean waitForPromptEnd) throws EncodeException, IOException, InterruptedException {    
-        String id = (String) message.get("_id");
-        String msgJson = gson.toJson(message);
-        
-        // gson.toJson encodes "=" to unicode, encode it back to "="
-        if(msgJson.contains("\\u003d")) {
-            msgJson = msgJson.replace("\\u003d", "=");
+    // hands a message to this session's worker
+    private void enqueue(MessageWrapper msgWrapper) {
+        if (!messageQueue.put(msgWrapper)) {
+            logger.error("Event queue of workflow {} is full, stopping it", workflowName);
+            stopWorkflow(session, "event_queue_overflow");
+            return;
+        }
+        RelayMetrics relayMetrics = metrics;
+        if (relayMetrics != RelayMetrics.NOOP) {
+            relayMetrics.eventQueued(workflowName, messageQueue.size());
+        }
+        if (executor == null) {
+            worker.schedule();
         }
+    }
 
+    // returns whether a request in flight was waiting on the message
+    private static boolean handleResponse(MessageWrapper msgWrapper, Relay wfWrapper) {
+        String id = msgWrapper.id;
+        if (id == null) {
+            return false;
+        }
+        Call<?> matchingCall = wfWrapper.pendingRequests.get(id);
+        if (matchingCall == null) {
+            return false;
+        }
+        matchingCall.deliver(msgWrapper);
+        return true;
+    }
+
+    // Sends a request and returns a future that handleResponse completes with the matching response.
+    // The future completes exceptionally if the request could not be sent, the server returned an error,
+    // no message arrived for the request within the response timeout, or the workflow was stopped.
+    private CompletableFuture<MessageWrapper> sendRequestAsync(RelayRequest message, boolean waitForPromptEnd) {
+        return sendCall(message, Call.of(waitForPromptEnd));
+    }
+
+    private <T> Call<T> sendCall(RelayRequest message, Call<T> call) {
         // store a call for this request that all incoming response/prompt/progress messages can be passed back to us through
-        Call call = new Call();
-        this.pendingRequests.put(id, call);
+        setTimeouts(call, message.type);
+        if (!register(message, call)) {
+            return call;
+        }
 
         // send the request
-        this.session.getBasicRemote().sendObject(msgJson);
-
-        logger.debug("--> Message sent: " + msgJson);
-
-        // block to listen for matching response
-        // if waitForPromptEnd is true, return the matching response as soon as it is received
-        // else store the response, and wait until a prompt end is seen, then return the response message
-        // in either case, progress events reset the listen timeout
-        MessageWrapper resp = null;
-        boolean receivedSpeechEvent = false;
-        while (true) {
-            MessageWrapper response = call.responseQueue.poll(RESPONSE_TIMEOUT_SECS, TimeUnit.SECONDS);
-            if(receivedSpeechEvent) {
-                return response;
+        try {
+            send(message);
+        } catch (EncodeException | IOException e) {
+            call.fail(e);
+            return call;
+        }
+        scheduleTimeout(call);
+        return call;
+    }
+
+    // Adds the call to the requests in flight. If too many are in flight already, fails the call instead.
+    private boolean register(RelayRequest message, Call<?> call) {
+        message.id = requestIds.next();
+        call.sent(message.type, metrics);
+        if (pendingRequests.add(message.id, call, maxPendingRequests)) {
+            // stopWorkflow() fails every call added before it set the flag, so fail any added after
+            if (stopped) {
+                call.fail(new CancellationException("Workflow stopped"));
+                return false;
+            }
+            return true;
+        }
+        call.fail(new RejectedExecutionException(
+                "Too many requests in flight (" + maxPendingRequests + "), not sending " + message));
+        return false;
+    }
+
+    private void send(RelayRequest message) throws EncodeException, IOException {
+        // requests can be sent from the worker and, through async callbacks, from the websocket thread
+        String msgJson;
+        sendLock.lock();
+        try {
+            msgJson = encoder.encode(message);
+            this.session.getBasicRemote().sendObject(msgJson);
+        } finally {
+            sendLock.unlock();
+        }
+        logger.debug("--> Message sent: {}", msgJson);
+    }
+
+    // the response timeout and overall deadline for a request of the given type, sent now
+    private static void setTimeouts(Call<?> call, RequestType type) {
+        long timeout = responseTimeoutNanosByType.get(type.ordinal());
+        if (timeout == 0) {
+            timeout = responseTimeoutNanos;
+        }
+        long deadline = requestDeadlineNanosByType.get(type.ordinal());
+        if (deadline == 0) {
+            deadline = requestDeadlineNanos;
+        }
+        long now = System.nanoTime();
+        boolean hasDeadline = deadline != 0;
+        long deadlineAt = now + deadline;
+        long[] scoped = scopedDeadline.get();
+        if (scoped != null && (!hasDeadline || scoped[0] - deadlineAt < 0)) {
+            deadlineAt = scoped[0];
+            hasDeadline = true;
+        }
+        call.setTimeouts(timeout, deadlineAt, hasDeadline);
+    }
+
+    // sweeps up any request the per-call timers missed, then schedules the next sweep
+    private static void scheduleExpirySweep() {
+        timer.schedule(() -> CompletionPool.execute(() -> {
+            try {
+                long now = System.nanoTime();
+                for (Set<Relay> running : runningWorkflowsByName.values()) {
+                    for (Relay relay : running) {
+                        int expired = relay.pendingRequests.expire(now);
+                        if (expired > 0) {
+                            logger.error("Expired " + expired + " requests that timed out waiting for a response");
+                        }
+                    }
+                }
+            } finally {
+                scheduleExpirySweep();
+            }
+        }), EXPIRY_SWEEP_SECS, TimeUnit.SECONDS);
+    }
+
+    // times the call out once no message has arrived for it within its response timeout, or its deadline passes
+    private static void scheduleTimeout(Call<?> call) {
+        long delay = call.expiresAt() - System.nanoTime();
+        call.setTimer(timer.schedule(() -> {
+            if (call.isDone()) {
+                return;
             }
-            if (response == null) {
-                logger.error("Timed out waiting for response");
-                return null;
-            } else if (response.stopped) {
-                logger.debug("Halting listening for responses, received stop command");
-                return null;
+            if (call.expiresAt() - System.nanoTime() > 0) {
+                // heard back in the meantime
+                scheduleTimeout(call);
+            } else {
+                CompletionPool.execute(() -> {
+                    if (call.timeout()) {
+                        logger.error("Timed out waiting for response");
+                    }
+                });
             }
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS));
+    }
+
+    // Sends a request and maps its response to the value handed back to the caller. Any failure is
+    // logged and yields the fallback, the same value the blocking API returns in that case.
+    private <T> CompletableFuture<T> requestAsync(RelayRequest message, boolean waitForPromptEnd, String errorMessage,
+                                                  T fallback, Function<MessageWrapper, T> mapper) {
+        return sendCall(message, Call.mapped(waitForPromptEnd, errorMessage, fallback, mapper));
+    }
+
+    private <T> CompletableFuture<T> requestAsync(RelayRequest message, String errorMessage,
+                                                  T fallback, Function<MessageWrapper, T> mapper) {
+        return requestAsync(message, false, errorMessage, fallback, mapper);
+    }
+
+    // for requests whose response carries nothing the caller needs
+    private CompletableFuture<Void> requestAsync(RelayRequest message, String errorMessage) {
+        return requestAsync(message, false, errorMessage, null, resp -> null);
+    }
+
+    // blocks the calling workflow thread until an action completes
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted waiting for response", e);
+        } catch (ExecutionException e) {
+            logger.error("Error waiting for response", e.getCause());
+        }
+        return null;
+    }
+
+    // Sends every request in the batch back to back, then waits for all of the responses. The whole
+    // batch shares one deadline instead of each request timing out on its own.
+    private CompletableFuture<BatchResult> sendBatchAsync(RequestBatch batch, Duration deadline) {
+        int size = batch.requests.size();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Call<MessageWrapper>[] calls = new Call[size];
+        long deadlineNanos = deadline.toNanos();
+        long deadlineAt = System.nanoTime() + deadlineNanos;
+        for (int i = 0; i < size; i++) {
+            calls[i] = Call.of(false);
+            // the batch's deadline stands in for the calls' own timers
+            calls[i].setTimeouts(deadlineNanos, deadlineAt, true);
+            register(batch.requests.get(i), calls[i]);
+        }
 
-            if (response.type.equals("prompt")) {
-                if (response.parsedJson.get("type").equals("stopped") && waitForPromptEnd) {
-                    return resp;
+        sendLock.lock();
+        try {
+            int sent = 0;
+            RemoteEndpoint.Basic remote = this.session.getBasicRemote();
+            boolean batching = enableBatching(remote);
+            try {
+                for (; sent < size; sent++) {
+                    if (calls[sent].isDone()) {
+                        // turned away by register()
+                        continue;
+                    }
+                    String msgJson = encoder.encode(batch.requests.get(sent));
+                    remote.sendObject(msgJson);
+                    logger.debug("--> Message sent: " + msgJson);
                 }
-                // otherwise do nothing with it
-            } else if (response.type.equals("progress")) {
-                // nothing to do here, will continue listening with a fresh timeout
-            } else if (response.type.equals("error")) {
-                // if an error was returned, then no response will be, so return null
-                logger.error("Error returned for call: " + response.messageJson);
-                return null;
-            } else if (response.eventOrResponse.equals("response") || response.eventOrResponse.equals("event")) {
-                // matching response
-                if (!waitForPromptEnd) {
-                    return response;
+            } catch (EncodeException | IOException e) {
+                logger.error("Error sending batch", e);
+                // the requests after the failed one were never sent
+                for (int i = sent; i < size; i++) {
+                    calls[i].fail(e);
                 }
-                // need to wait for prompt end, save the response to return then
-                resp = response;
-                // for listen, notify that we received a speech event
-                receivedSpeechEvent = true;
+            } finally {
+                flushBatching(remote, batching);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+
+        HashedWheelTimer.Timeout deadlineTimer = timer.schedule(() -> CompletionPool.execute(() -> {
+            int timedOut = 0;
+            for (Call<?> call : calls) {
+                if (call.timeout()) {
+                    timedOut++;
+                }
+            }
+            if (timedOut > 0) {
+                logger.error("Timed out waiting for " + timedOut + " of " + size + " batched responses");
+            }
+        }), deadlineNanos, TimeUnit.NANOSECONDS);
+
+        return CompletableFuture.allOf(calls).handle((ignored, e) -> {
+            // lets go of the calls and their responses now rather than at the deadline
+            deadlineTimer.cancel();
+            List<BatchResult.Outcome> outcomes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String type = batch.requests.get(i).type.value();
+                outcomes.add(new BatchResult.Outcome(i, type, batchError(calls[i])));
+            }
+            return new BatchResult(outcomes);
+        });
+    }
+
+    // Turns on batching in the websocket container, if it supports it, and returns the previous setting.
+    // With batching on, the container may buffer the batch and write it to the network in one go on flush.
+    private static boolean enableBatching(RemoteEndpoint.Basic remote) {
+        try {
+            boolean previous = remote.getBatchingAllowed();
+            if (!previous) {
+                remote.setBatchingAllowed(true);
             }
+            return previous;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Websocket batching unavailable", e);
+            return true;
+        }
+    }
+
+    // writes out anything the container buffered and restores its batching setting
+    private static void flushBatching(RemoteEndpoint.Basic remote, boolean previous) {
+        try {
+            remote.flushBatch();
+            if (!previous) {
+                remote.setBatchingAllowed(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Error flushing batch", e);
+        }
+    }
+
+    // describes why a batched request failed, or null if it succeeded
+    private static String batchError(CompletableFuture<MessageWrapper> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CancellationException e) {
+            return "workflow stopped";
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                return "workflow stopped";
+            } else if (cause instanceof TimeoutException) {
+                return "timed out";
+            } else if (cause instanceof Call.ErrorResponseException) {
+                Object error = ((Call.ErrorResponseException) cause).response.parsedJson().get("error");
+                return error != null ? error.toString() : cause.getMessage();
+            }
+            return String.valueOf(cause);
         }
     }
 
@@ -238,6 +928,18 @@ public class Relay {
     // Similarly, if the SDK method returns an information value that doesn't have
     // to get used, then mark those @SuppressWarnings("UnusedReturnValue").
 
+    // Every action also has an Async variant that sends the request and returns
+    // right away with a CompletableFuture, so a workflow can have several requests
+    // in flight at once instead of paying for their round trips one after another.
+    // The futures complete with the same value the blocking method would return,
+    // including its fallback value (usually null) if the request fails or times out.
+    // They are completed, and the stages chained onto them run, on the thread that
+    // receives websocket messages when the response or a stop event arrives, on a
+    // CompletionPool thread when a timeout or batch deadline passes, or on the thread
+    // that stops the workflow or fails to send the request. The HTTP variants complete
+    // on the RelayHttpClient's executor. None of these may block, so dependent actions
+    // chained onto the futures must use the Async variants too.
+
     // Returns error if any, null otherwise
 
     /**
@@ -266,19 +968,24 @@ public class Relay {
      */
     @SuppressWarnings("UnusedReturnValue")
     public String startInteraction(String target, String name, Object options) {
+        return await(startInteractionAsync(target, name, options));
+    }
+
+    /**
+     * Asynchronous version of {@link #startInteraction(String, String, Object)}.
+     * @param target the device that you would like to start an interaction with.
+     * @param name a name for your interaction
+     * @param options can be color, home channel, or input types.
+     * @return a future completed with any errors received from the server.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> startInteractionAsync(String target, String name, Object options) {
         logger.debug("Starting Interaction for source uri " + target);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.StartInteraction, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.StartInteraction, target,
                 entry("name", name),
                 entry("options", options == null ? new Object() : options)
         );
-
-        try {
-            MessageWrapper resp = sendRequest(req);
-            return (String) resp.parsedJson.get("error");
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error starting interaction", e);
-        }
-        return null;
+        return requestAsync(req, "Error starting interaction", null, resp -> (String) resp.parsedJson().get("error"));
     }
 
     /**
@@ -289,15 +996,20 @@ public class Relay {
      */
     @SuppressWarnings("UnusedReturnValue")
     public String endInteraction(String target) {
+        return await(endInteractionAsync(target));
+    }
+
+    /**
+     * Asynchronous version of {@link #endInteraction(String)}.
+     * @param target the interaction that you would like to end.
+     * @return a future completed with any errors received from the server.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> endInteractionAsync(String target) {
         logger.debug("Ending Interaction for source uri " + target);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.EndInteraction, target);
-        try {
-            MessageWrapper resp = sendRequest(req);
-            return (String) resp.parsedJson.get("error");
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error ending interaction", e);
-        }
-        return null;
+        flushVarsIfWriteBack();
+        RelayRequest req = RelayUtils.buildRequest(RequestType.EndInteraction, target);
+        return requestAsync(req, "Error ending interaction", null, resp -> (String) resp.parsedJson().get("error"));
     }
 
     /**
@@ -320,6 +1032,29 @@ public class Relay {
      */
     @SuppressWarnings({"unused", "UnusedReturnValue"})
     public String say(String target, String text, LanguageType lang) {
+        return await(say(target, text, lang, false));
+    }
+
+    /**
+     * Asynchronous version of {@link #say(String, String)}.
+     * @param target the interaction URN.
+     * @param text what you would like the device to say.
+     * @return a future completed with the response ID once the server accepts the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> sayAsync(String target, String text) {
+        return sayAsync(target, text, LanguageType.English);
+    }
+
+    /**
+     * Asynchronous version of {@link #say(String, String, LanguageType)}.
+     * @param target the interaction URN.
+     * @param text what you would like the device to say.
+     * @param lang the language of the text that is being spoken.
+     * @return a future completed with the response ID once the server accepts the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> sayAsync(String target, String text, LanguageType lang) {
         return say(target, text, lang, false);
     }
 
@@ -343,23 +1078,39 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void sayAndWait(String target, String text, LanguageType lang) {
-        say(target, text, lang, true);
+        await(say(target, text, lang, true));
     }
 
-    private String say(String target, String text, LanguageType lang, boolean wait) {
+    /**
+     * Asynchronous version of {@link #sayAndWait(String, String)}.
+     * @param target the interaction URN.
+     * @param text what you would like the device to say.
+     * @return a future completed with the response ID once the text has been fully played out.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> sayAndWaitAsync(String target, String text) {
+        return sayAndWaitAsync(target, text, LanguageType.English);
+    }
+
+    /**
+     * Asynchronous version of {@link #sayAndWait(String, String, LanguageType)}.
+     * @param target the interaction URN.
+     * @param text what you would like the device to say.
+     * @param lang the language of the text that is being spoken.
+     * @return a future completed with the response ID once the text has been fully played out.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> sayAndWaitAsync(String target, String text, LanguageType lang) {
+        return say(target, text, lang, true);
+    }
+
+    private CompletableFuture<String> say(String target, String text, LanguageType lang, boolean wait) {
         logger.debug("Saying " + text + " in " + lang.value() + " to " + target);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Say, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.Say, target,
                 entry("text", text),
                 entry("lang", lang.value())
         );
-
-        try {
-            MessageWrapper resp = sendRequest(req, wait);
-            return resp != null ? (String) resp.parsedJson.get("id") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error saying text", e);
-        }
-        return null;
+        return requestAsync(req, wait, "Error saying text", null, resp -> (String) resp.parsedJson().get("id"));
     }
 
     /**
@@ -388,22 +1139,31 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String listen(String target, String requestId, String[] phrases, boolean transcribe, LanguageType lang, int timeout) {
+        return await(listenAsync(target, requestId, phrases, transcribe, lang, timeout));
+    }
+
+    /**
+     * Asynchronous version of {@link #listen(String, String, String[], boolean, LanguageType, int)}.
+     * @param target the interaction URN.
+     * @param requestId the request ID.
+     * @param phrases phrases that you would like to limit the user's response to.
+     * @param transcribe whether you would like to transcribe the user's response.
+     * @param lang if you would like the device to listen for a response in a specific language.
+     * @param timeout timeout for how long the device will wait for user's response.
+     * @return a future completed with the text that the device parsed from what was spoken.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> listenAsync(String target, String requestId, String[] phrases, boolean transcribe, LanguageType lang, int timeout) {
         logger.debug("Listening to " + target);
         
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Listen, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.Listen, target,
             entry("request_id", requestId),
             entry("phrases", phrases),
             entry("transcribe", transcribe),
             entry("timeout", timeout),
             entry("alt_lang", lang.value())
         );
-        try {
-            MessageWrapper resp = sendRequest(req, true);
-            return resp != null ? (String) resp.parsedJson.get("text") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error listening", e);
-        }
-        return null;
+        return requestAsync(req, true, "Error listening", null, resp -> (String) resp.parsedJson().get("text"));
     }
 
     /**
@@ -414,6 +1174,17 @@ public class Relay {
      */
     @SuppressWarnings({"unused", "UnusedReturnValue"})
     public String play(String target, String filename) {
+        return await(play(target, filename, false));
+    }
+
+    /**
+     * Asynchronous version of {@link #play(String, String)}.
+     * @param target the interaction URN.
+     * @param filename the name of the audio file.
+     * @return a future completed with the response ID once the server accepts the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> playAsync(String target, String filename) {
         return play(target, filename, false);
     }
 
@@ -427,22 +1198,26 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String playAndWait(String target, String filename) {
+        return await(play(target, filename, true));
+    }
+
+    /**
+     * Asynchronous version of {@link #playAndWait(String, String)}.
+     * @param target the interaction URN.
+     * @param filename the name of the audio file.
+     * @return a future completed with the response ID once the audio file has finished playing.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> playAndWaitAsync(String target, String filename) {
         return play(target, filename, true);
     }
 
-    private String play(String target, String filename, boolean wait) {
+    private CompletableFuture<String> play(String target, String filename, boolean wait) {
         logger.debug("Playing file: " + filename);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Play, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.Play, target,
                 entry("filename", filename)
         );
-
-        try {
-            MessageWrapper resp = sendRequest(req,  wait);
-            return resp != null ? (String) resp.parsedJson.get("id") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error playing file", e);
-        }
-        return null;
+        return requestAsync(req, wait, "Error playing file", null, resp -> (String) resp.parsedJson().get("id"));
     }
 
     /**
@@ -452,16 +1227,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void stopPlayback( String target, String[] ids) {
+        await(stopPlaybackAsync(target, ids));
+    }
+
+    /**
+     * Asynchronous version of {@link #stopPlayback(String, String[])}.
+     * @param target the device URN.
+     * @param ids the IDs of the devices who you would like to stop the playback message for.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> stopPlaybackAsync(String target, String[] ids) {
         logger.debug("Stopping playback for: " + Arrays.toString(ids));
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.StopPlayback, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.StopPlayback, target,
                 entry("ids", ids)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error stopping playback", e);
-        }
+        return requestAsync(req, "Error stopping playback");
     }
 
     /**
@@ -470,14 +1251,19 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void playUnreadInboxMessages(String target) {
-        logger.debug("Playing unread messages" );
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.PlayInboxMessages, target);
+        await(playUnreadInboxMessagesAsync(target));
+    }
 
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error playing unread inbox messages", e);
-        }
+    /**
+     * Asynchronous version of {@link #playUnreadInboxMessages(String)}.
+     * @param target the device or interaction URN whose inbox you would like to check.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> playUnreadInboxMessagesAsync(String target) {
+        logger.debug("Playing unread messages" );
+        RelayRequest req = RelayUtils.buildRequest(RequestType.PlayInboxMessages, target);
+        return requestAsync(req, "Error playing unread inbox messages");
     }
 
     /**
@@ -487,21 +1273,23 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public int getUnreadInboxSize(String target) {
-        logger.debug("Getting unread inbox size");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.InboxCount, target);
+        Integer count = await(getUnreadInboxSizeAsync(target));
+        return count != null ? count : -1;
+    }
 
-        try {
-            MessageWrapper resp = sendRequest(req);
-            if (resp != null) {
-                return Integer.parseInt(resp.parsedJson.get("count").toString());
-            } else {
-                logger.error("Error retrieving inbox count: null response");
-                return -1;
-            }
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error retrieving inbox count", e);
-        }
-        return -1;
+    /**
+     * Asynchronous version of {@link #getUnreadInboxSize(String)}.
+     * @param target the device or interaction URN whose inbox you would like to check.
+     * @return a future completed with the number of messages in the specified device's inbox, or -1 on error.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Integer> getUnreadInboxSizeAsync(String target) {
+        logger.debug("Getting unread inbox size");
+        return inFlightRequests.coalesce(RequestType.InboxCount, target, null, null, () -> {
+            RelayRequest req = RelayUtils.buildRequest(RequestType.InboxCount, target);
+            return requestAsync(req, "Error retrieving inbox count", -1,
+                    resp -> Integer.parseInt(resp.parsedJson().get("count").toString()));
+        });
     }
 
     /**
@@ -514,19 +1302,27 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void setTimer(TimerType timerType, String name, long timeout, TimeoutType timeoutType) {
+        await(setTimerAsync(timerType, name, timeout, timeoutType));
+    }
+
+    /**
+     * Asynchronous version of {@link #setTimer(TimerType, String, long, TimeoutType)}.
+     * @param timerType can be 'timeout' or 'interval'. Defaults to 'timeout'.
+     * @param name a name for your timer.
+     * @param timeout an integer representing when you would like your timer to fire.
+     * @param timeoutType can be 'ms', 'secs', 'mins' or 'hrs'. Defaults to 'secs'.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setTimerAsync(TimerType timerType, String name, long timeout, TimeoutType timeoutType) {
         logger.debug("Setting timer " + timerType.value() + " named " + name + " for " + timeout + " " + timeoutType.value());
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetTimer,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetTimer,
                 entry("type", timerType.value()),
                 entry("name", name),
                 entry("timeout", timeout),
                 entry("timeout_type", timeoutType.value())
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting timer", e);
-        }
+        return requestAsync(req, "Error setting timer");
     }
 
     /**
@@ -535,16 +1331,21 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void clearTimer(String name) {
+        await(clearTimerAsync(name));
+    }
+
+    /**
+     * Asynchronous version of {@link #clearTimer(String)}.
+     * @param name the name of the timer that you would like to clear.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> clearTimerAsync(String name) {
         logger.debug("Clearing timer named " + name);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.ClearTimer,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.ClearTimer,
                 entry("name", name)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error ", e);
-        }
+        return requestAsync(req, "Error ");
     }
 
     /**
@@ -554,16 +1355,21 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void startTimer(int timeout) {
+        await(startTimerAsync(timeout));
+    }
+
+    /**
+     * Asynchronous version of {@link #startTimer(int)}.
+     * @param timeout the number of seconds you would like to wait until the timer fires.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> startTimerAsync(int timeout) {
         logger.debug("Starting timer unnamed ");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.StartTimer,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.StartTimer,
                 entry("timeout", timeout)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error starting timer ", e);
-        }
+        return requestAsync(req, "Error starting timer ");
     }
 
     /**
@@ -571,13 +1377,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void stopTimer() {
+        await(stopTimerAsync());
+    }
+
+    /**
+     * Asynchronous version of {@link #stopTimer()}.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> stopTimerAsync() {
         logger.debug("Stopping timer unnamed ");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.StopTimer);
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error stopping timer ", e);
-        }
+        RelayRequest req = RelayUtils.buildRequest(RequestType.StopTimer);
+        return requestAsync(req, "Error stopping timer ");
     }
 
     /**
@@ -589,19 +1400,27 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String translate(String text, LanguageType from, LanguageType to) {
+        return await(translateAsync(text, from, to));
+    }
+
+    /**
+     * Asynchronous version of {@link #translate(String, LanguageType, LanguageType)}.
+     * @param text the text that you would like to translate.
+     * @param from the language that you would like to translate from.
+     * @param to the language that you would like to translate to.
+     * @return a future completed with the translated text.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> translateAsync(String text, LanguageType from, LanguageType to) {
         logger.debug("Translating text");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Translate,
-            entry("text", text),
-            entry("from_lang", from.value()),
-            entry("to_lang", to.value())
-        );
-        try {
-            MessageWrapper resp = sendRequest(req);
-            return resp != null ? (String) resp.parsedJson.get("text") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error translating text", e);
-        }
-        return null;
+        return inFlightRequests.coalesce(RequestType.Translate, text, from.value(), to.value(), () -> {
+            RelayRequest req = RelayUtils.buildRequest(RequestType.Translate,
+                entry("text", text),
+                entry("from_lang", from.value()),
+                entry("to_lang", to.value())
+            );
+            return requestAsync(req, "Error translating text", null, resp -> (String) resp.parsedJson().get("text"));
+        });
     }
 
     /**
@@ -612,17 +1431,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String placeCall(String target, String calleeUri) {
+        return await(placeCallAsync(target, calleeUri));
+    }
+
+    /**
+     * Asynchronous version of {@link #placeCall(String, String)}.
+     * @param target the device or interaction URN that will place the call.
+     * @param calleeUri the URN of the device you would like to call.
+     * @return a future completed with the call ID.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> placeCallAsync(String target, String calleeUri) {
         logger.debug("Placing call");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.PlaceCall, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.PlaceCall, target,
                 entry("uri", calleeUri)
         );
-        try {
-            MessageWrapper resp = sendRequest(req);
-            return resp != null ? (String) resp.parsedJson.get("call_id") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error placing call", e);
-        }
-        return null;
+        return requestAsync(req, "Error placing call", null, resp -> (String) resp.parsedJson().get("call_id"));
     }
 
     /**
@@ -632,15 +1456,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void answerCall(String target, String call_id) {
+        await(answerCallAsync(target, call_id));
+    }
+
+    /**
+     * Asynchronous version of {@link #answerCall(String, String)}.
+     * @param target the device or interaction URN that will answer the call.
+     * @param call_id the ID of the call to answer.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> answerCallAsync(String target, String call_id) {
         logger.debug("Answering call");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.AnswerCall, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.AnswerCall, target,
                 entry("call_id", call_id)
         );
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error answering call", e);
-        }
+        return requestAsync(req, "Error answering call");
     }
 
     /**
@@ -650,15 +1481,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void hangupCall(String target, String call_id) {
+        await(hangupCallAsync(target, call_id));
+    }
+
+    /**
+     * Asynchronous version of {@link #hangupCall(String, String)}.
+     * @param target the device or interaction URN that will hang up the call.
+     * @param call_id the ID of the call to hang up.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> hangupCallAsync(String target, String call_id) {
         logger.debug("Hanging up call");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.HangupCall, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.HangupCall, target,
                 entry("call_id", call_id)
         );
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error hanging up call", e);
-        }
+        return requestAsync(req, "Error hanging up call");
     }
 
     /**
@@ -668,18 +1506,23 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String createIncident( String originator, String itype) {
+        return await(createIncidentAsync(originator, itype));
+    }
+
+    /**
+     * Asynchronous version of {@link #createIncident(String, String)}.
+     * @param originator the device URN that triggered the incident.
+     * @param itype the type of incident that occurred.
+     * @return a future completed with the ID of the new incident.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> createIncidentAsync(String originator, String itype) {
         logger.debug("Creating incident");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.CreateIncident, 
+        RelayRequest req = RelayUtils.buildRequest(RequestType.CreateIncident, 
             entry("type", itype),
             entry("originator_uri", originator)
         );
-        try {
-            MessageWrapper resp = sendRequest(req);
-            return resp != null ? (String) resp.parsedJson.get("incident_id") : null;
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error creating incident", e);
-        }
-        return null;
+        return requestAsync(req, "Error creating incident", null, resp -> (String) resp.parsedJson().get("incident_id"));
     }
 
     /**
@@ -689,16 +1532,23 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void resolveIncident( String incidentId, String reason) {
+        await(resolveIncidentAsync(incidentId, reason));
+    }
+
+    /**
+     * Asynchronous version of {@link #resolveIncident(String, String)}.
+     * @param incidentId the ID of the incident that you would like to resolve.
+     * @param reason the reason for resolving the incident.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> resolveIncidentAsync(String incidentId, String reason) {
         logger.debug("Resolving incident");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.ResolveIncident, 
+        RelayRequest req = RelayUtils.buildRequest(RequestType.ResolveIncident, 
             entry("incident_id", incidentId),
             entry("reason", reason)
         );
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error resolving incident", e);
-        }
+        return requestAsync(req, "Error resolving incident");
     }
 
     /**
@@ -711,18 +1561,26 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void logUserMessage( String message, String deviceUri, String category) {
+        await(logUserMessageAsync(message, deviceUri, category));
+    }
+
+    /**
+     * Asynchronous version of {@link #logUserMessage(String, String, String)}.
+     * @param message a description for your analytical event.
+     * @param deviceUri the URN of the device that triggered this function.
+     * @param category a category for your analytical event.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> logUserMessageAsync(String message, String deviceUri, String category) {
         logger.debug("Logging user message");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.LogAnalytics,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.LogAnalytics,
             entry("content", message),
             entry("content_type", "text/plain"),
             entry("category", category),
             entry("device_uri", deviceUri)
         );
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error logging user message", e);
-        }
+        return requestAsync(req, "Error logging user message");
     }
 
     /**
@@ -734,17 +1592,24 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void logMessage( String message, String category) {
+        await(logMessageAsync(message, category));
+    }
+
+    /**
+     * Asynchronous version of {@link #logMessage(String, String)}.
+     * @param message a description for your analytical event.
+     * @param category a category for your analytical event
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> logMessageAsync(String message, String category) {
         logger.debug("Logging message");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.LogAnalytics,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.LogAnalytics,
             entry("content", message),
             entry("content_type", "text/plain"),
             entry("category", category)
         );
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error logging message", e);
-        }
+        return requestAsync(req, "Error logging message");
     }
 
     /**
@@ -755,9 +1620,21 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void switchLedOn( String target, int index, String color) {
+        await(switchLedOnAsync(target, index, color));
+    }
+
+    /**
+     * Asynchronous version of {@link #switchLedOn(String, int, String)}.
+     * @param target the interaction URN.
+     * @param index the index of the LED, numbered 1-12.
+     * @param color the hex color code you would like to turn the LED to.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> switchLedOnAsync(String target, int index, String color) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setColor(Integer.toString(index), color);
-        setLeds( target, LedEffect.STATIC, ledInfo.ledMap);
+        return setLeds( target, LedEffect.STATIC, ledInfo.ledMap);
     }
 
     /**
@@ -767,9 +1644,20 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void switchAllLedOn( String target, String color) {
+        await(switchAllLedOnAsync(target, color));
+    }
+
+    /**
+     * Asynchronous version of {@link #switchAllLedOn(String, String)}.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like the LEDs to be.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> switchAllLedOnAsync(String target, String color) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setColor("ring", color);
-        setLeds( target, LedEffect.STATIC, ledInfo.ledMap);
+        return setLeds( target, LedEffect.STATIC, ledInfo.ledMap);
     }
 
     /**
@@ -778,8 +1666,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void switchAllLedOff( String target) {
+        await(switchAllLedOffAsync(target));
+    }
+
+    /**
+     * Asynchronous version of {@link #switchAllLedOff(String)}.
+     * @param target the interaction URN.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> switchAllLedOffAsync(String target) {
         LedInfo ledInfo = new LedInfo();
-        setLeds( target, LedEffect.OFF, ledInfo.ledMap);
+        return setLeds( target, LedEffect.OFF, ledInfo.ledMap);
     }
 
     /**
@@ -790,9 +1688,20 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void rainbow( String target, int rotations) {
+        await(rainbowAsync(target, rotations));
+    }
+
+    /**
+     * Asynchronous version of {@link #rainbow(String, int)}.
+     * @param target the interaction URN.
+     * @param rotations the number of times you would like the rainbow to rotate.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> rainbowAsync(String target, int rotations) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setRotations(rotations);
-        setLeds( target, LedEffect.RAINBOW, ledInfo.ledMap);
+        return setLeds( target, LedEffect.RAINBOW, ledInfo.ledMap);
     }
 
     /**
@@ -804,10 +1713,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void rotate( String target, String color, int rotations) {
+        await(rotateAsync(target, color, rotations));
+    }
+
+    /**
+     * Asynchronous version of {@link #rotate(String, String, int)}.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param rotations the number of times you would like the LEDs to rotate.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> rotateAsync(String target, String color, int rotations) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setRotations(rotations);
         ledInfo.setColor("1", color);
-        setLeds( target, LedEffect.ROTATE, ledInfo.ledMap);
+        return setLeds( target, LedEffect.ROTATE, ledInfo.ledMap);
     }
 
     /**
@@ -819,10 +1740,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void flash( String target, String color, int count) {
+        await(flashAsync(target, color, count));
+    }
+
+    /**
+     * Asynchronous version of {@link #flash(String, String, int)}.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param count the number of times you would like the LEDs to flash.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> flashAsync(String target, String color, int count) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setCount(count);
         ledInfo.setColor("ring", color);
-        setLeds( target, LedEffect.FLASH, ledInfo.ledMap);
+        return setLeds( target, LedEffect.FLASH, ledInfo.ledMap);
     }
 
     /**
@@ -834,24 +1767,34 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void breathe( String target, String color, int count) {
+        await(breatheAsync(target, color, count));
+    }
+
+    /**
+     * Asynchronous version of {@link #breathe(String, String, int)}.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param count the number of times you would like the LEDs to flash.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> breatheAsync(String target, String color, int count) {
         LedInfo ledInfo = new LedInfo();
         ledInfo.setCount(count);
         ledInfo.setColor("ring", color);
-        setLeds( target, LedEffect.BREATHE, ledInfo.ledMap);
+        return setLeds( target, LedEffect.BREATHE, ledInfo.ledMap);
     }
 
-    private void setLeds( String target, LedEffect effect, Map<String, Object> args) {
+    private CompletableFuture<Void> setLeds( String target, LedEffect effect, Map<String, Object> args) {
         logger.debug("Setting leds: " + effect.value() + " " + args);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetLeds, target,
+        return requestAsync(ledsRequest(target, effect, args), "Error setting leds");
+    }
+
+    static RelayRequest ledsRequest(String target, LedEffect effect, Map<String, Object> args) {
+        return RelayUtils.buildRequest(RequestType.SetLeds, target,
                 entry("effect", effect.value()),
                 entry("args", args)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting leds", e);
-        }
     }
 
     /**
@@ -864,16 +1807,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void vibrate( String target, int[] pattern) {
+        await(vibrateAsync(target, pattern));
+    }
+
+    /**
+     * Asynchronous version of {@link #vibrate(String, int[])}.
+     * @param target the interaction URN.
+     * @param pattern an array representing the pattern of your vibration.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> vibrateAsync(String target, int[] pattern) {
         logger.debug("Vibrating: " + Arrays.toString(pattern));
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Vibrate, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.Vibrate, target,
                 entry("pattern", pattern)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error vibrating", e);
-        }
+        return requestAsync(req, "Error vibrating");
     }
 
     /**
@@ -885,17 +1834,33 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void setVar(String name, String value) {
+        await(setVarAsync(name, value));
+    }
+
+    /**
+     * Asynchronous version of {@link #setVar(String, String)}.
+     * @param name name of the variable to be created.
+     * @param value value that the variable will hold.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setVarAsync(String name, String value) {
         logger.debug("Setting variable: " + name + " with value " +  value);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetVar,
+        return setVarAsync(name, value, null);
+    }
+
+    private CompletableFuture<Void> setVarAsync(String name, String value, Integer number) {
+        if (variables.enabled()) {
+            variables.set(name, value, number);
+            if (variables.writeBack()) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetVar,
                 entry("name", name),
                 entry("value", value)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting variable", e);
-        }
+        return requestAsync(req, "Error setting variable");
     }
 
     /**
@@ -908,21 +1873,37 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getVar(String name, String defaultValue) {
+        return await(getVarAsync(name, defaultValue));
+    }
+
+    /**
+     * Asynchronous version of {@link #getVar(String, String)}.
+     * @param name name of the variable to be retrieved.
+     * @param defaultValue default value of the variable if it does not exist.
+     * @return a future completed with the variable requested as a String.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getVarAsync(String name, String defaultValue) {
         logger.debug("Getting variable: " + name + " with default value " +  defaultValue);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.GetVar,
-                entry("name", name),
-                entry("value", defaultValue)
-        );
-        try {
-            MessageWrapper resp = sendRequest(req);
-            if( resp.parsedJson.get("value") == null){
-                return defaultValue;
+        if (variables.enabled()) {
+            String known = variables.get(name, defaultValue);
+            if (known != null) {
+                return CompletableFuture.completedFuture(known);
             }
-            return (String) resp.parsedJson.get("value");
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error getting variable", e);
         }
-        return null;
+        return inFlightRequests.coalesce(RequestType.GetVar, name, defaultValue, null, () -> {
+            RelayRequest req = RelayUtils.buildRequest(RequestType.GetVar,
+                    entry("name", name),
+                    entry("value", defaultValue)
+            );
+            return requestAsync(req, "Error getting variable", defaultValue, resp -> {
+                String value = (String) resp.parsedJson().get("value");
+                if (variables.enabled()) {
+                    variables.fetched(name, value, defaultValue);
+                }
+                return value == null ? defaultValue : value;
+            });
+        });
     }
 
     /**
@@ -935,30 +1916,124 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public int getNumberVar(String name, int defaultValue) {
+        if (variables.enabled()) {
+            Integer known = variables.getNumber(name, defaultValue);
+            if (known != null) {
+                return known;
+            }
+        }
         return Integer.parseInt(this.getVar(name, Integer.toString(defaultValue)));
     }
 
+    /**
+     * Asynchronous version of {@link #getNumberVar(String, int)}.
+     * @param name name of the variable to be retrieved.
+     * @param defaultValue default value of the variable if it does not exist.
+     * @return a future completed with the variable requested as an Integer.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Integer> getNumberVarAsync(String name, int defaultValue) {
+        if (variables.enabled()) {
+            Integer known = variables.getNumber(name, defaultValue);
+            if (known != null) {
+                return CompletableFuture.completedFuture(known);
+            }
+        }
+        return getVarAsync(name, Integer.toString(defaultValue)).thenApply(Integer::parseInt);
+    }
+
+    /**
+     * Sets a variable to a number. It is stored as a string, as with
+     * {@link #setVar(String, String)}, but when the session keeps a copy of its
+     * variables, reading it back with {@link #getNumberVar(String, int)} needs no
+     * parsing.
+     * @param name name of the variable to be created.
+     * @param value value that the variable will hold.
+     */
+    @SuppressWarnings("unused")
+    public void setNumberVar(String name, int value) {
+        await(setNumberVarAsync(name, value));
+    }
+
+    /**
+     * Asynchronous version of {@link #setNumberVar(String, int)}.
+     * @param name name of the variable to be created.
+     * @param value value that the variable will hold.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setNumberVarAsync(String name, int value) {
+        logger.debug("Setting variable: " + name + " with value " +  value);
+        return setVarAsync(name, Integer.toString(value), value);
+    }
+
     /**
      * Unsets the value of a variable.
      * @param name the name of the variable whose value you would like to unset.
      */
     @SuppressWarnings("unused")
     public void unsetVar(String name) {
+        await(unsetVarAsync(name));
+    }
+
+    /**
+     * Asynchronous version of {@link #unsetVar(String)}.
+     * @param name the name of the variable whose value you would like to unset.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> unsetVarAsync(String name) {
         logger.debug("Unsetting variable: " + name);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.UnsetVar,
+        if (variables.enabled()) {
+            variables.unset(name);
+            if (variables.writeBack()) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        RelayRequest req = RelayUtils.buildRequest(RequestType.UnsetVar,
                 entry("name", name)
         );
+        return requestAsync(req, "Error unsetting variable");
+    }
 
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error unsetting variable", e);
+    /**
+     * Sends every change to the workflow's variables that is still held back in the
+     * {@link VariableCacheMode#WriteBack} mode to the server, all at once. Done
+     * automatically before {@link #terminate()} and {@link #endInteraction(String)},
+     * and when the workflow is stopped, after {@link Workflow#onStop} has returned.
+     * Does nothing in the other modes.
+     * @return the outcome of each variable sent.
+     */
+    @SuppressWarnings({"unused", "UnusedReturnValue"})
+    public BatchResult flushVars() {
+        return await(flushVarsAsync());
+    }
+
+    /**
+     * Asynchronous version of {@link #flushVars()}.
+     * @return a future completed with the outcome of each variable sent.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<BatchResult> flushVarsAsync() {
+        RequestBatch batch = new RequestBatch();
+        variables.drainChanges(batch);
+        logger.debug("Flushing " + batch.requests.size() + " variables");
+        return sendBatchAsync(batch, Duration.ofNanos(responseTimeoutNanos));
+    }
+
+    // sent ahead of a request that may end the workflow's access to its variables
+    private void flushVarsIfWriteBack() {
+        if (variables.hasChanges()) {
+            flushVarsAsync();
         }
     }
 
-    private void sendNotification(String target, String originator, String type, String text, String name) {
+    private CompletableFuture<Void> sendNotification(String target, String originator, String type, String text, String name) {
         logger.debug("Sending notification with name: " + name);
+        return requestAsync(notificationRequest(target, originator, type, text, name), "Error sending notification");
+    }
 
+    static RelayRequest notificationRequest(String target, String originator, String type, String text, String name) {
         // set up empty pushOpts
         @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
         Map<String, Object> pushOpts = new HashMap<>();
@@ -970,7 +2045,7 @@ public class Relay {
         TargetUri targetUri = new TargetUri(targets);
 
         // Fill out the request, using the new targetUri object
-        Map<String, Object> req;
+        RelayRequest req;
         if ((originator != null) && (text != null)) {
             req = RelayUtils.buildRequest(RequestType.SendNotification,
                     entry("_target", targetUri),
@@ -989,12 +2064,7 @@ public class Relay {
                     entry("target", targetUri),
                     entry("push_opts", pushOpts));
         }
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error sending notification", e);
-        }
+        return req;
     }
 
     /**
@@ -1005,26 +2075,29 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public boolean isGroupMember(String groupNameUri, String potentialMemberNameUri) {
+        return Boolean.TRUE.equals(await(isGroupMemberAsync(groupNameUri, potentialMemberNameUri)));
+    }
+
+    /**
+     * Asynchronous version of {@link #isGroupMember(String, String)}.
+     * @param groupNameUri the URN of a group.
+     * @param potentialMemberNameUri the URN of the device name.
+     * @return a future completed with true if the device is a member of the specified group, false otherwise.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Boolean> isGroupMemberAsync(String groupNameUri, String potentialMemberNameUri) {
         String groupName = RelayUri.parseGroupName(groupNameUri);
         String deviceName = RelayUri.parseDeviceName(potentialMemberNameUri);
         String groupUri = RelayUri.groupMember(groupName, deviceName);
         logger.debug("Checking if  " + potentialMemberNameUri + " is a group member.");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.GroupQuery,
-                entry("query", "is_member"),
-                entry("group_uri", groupUri)
-        );
-
-        try {
-            MessageWrapper resp = sendRequest(req);
-            if (resp != null) {
-                return (Boolean) resp.parsedJson.get("is_member");
-            } else {
-                logger.error("Error checking if group member: null answer");
-            }
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error checking if group member", e);
-        }
-        return false;
+        return inFlightRequests.coalesce(RequestType.GroupQuery, "is_member", groupUri, null, () -> {
+            RelayRequest req = RelayUtils.buildRequest(RequestType.GroupQuery,
+                    entry("query", "is_member"),
+                    entry("group_uri", groupUri)
+            );
+            return requestAsync(req, "Error checking if group member", false,
+                    resp -> Boolean.TRUE.equals(resp.parsedJson().get("is_member")));
+        });
     }
 
     /**
@@ -1036,7 +2109,20 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void alert(String target, String originator, String name, String text) {
-        sendNotification(target, originator, "alert", text, name);
+        await(alertAsync(target, originator, name, text));
+    }
+
+    /**
+     * Asynchronous version of {@link #alert(String, String, String, String)}.
+     * @param target the group URN that you would like to send an alert to.
+     * @param originator the URN of the device that triggered the alert.
+     * @param name a name for your alert.
+     * @param text the text that you would like to be spoken to the group as your alert.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> alertAsync(String target, String originator, String name, String text) {
+        return sendNotification(target, originator, "alert", text, name);
     }
 
     /**
@@ -1047,7 +2133,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void cancelAlert(String target, String name) {
-        sendNotification(target, null, "cancel", null, name);
+        await(cancelAlertAsync(target, name));
+    }
+
+    /**
+     * Asynchronous version of {@link #cancelAlert(String, String)}.
+     * @param target the device URN that has acknowledged the alert.
+     * @param name the name of the alert.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> cancelAlertAsync(String target, String name) {
+        return sendNotification(target, null, "cancel", null, name);
     }
 
     /**
@@ -1059,18 +2156,42 @@ public class Relay {
      * @param text the text that you would like to broadcast to your group.
      */
     @SuppressWarnings("unused")
-    public void broadcast (String target, String originator, String name, String text) {
-        sendNotification(target, originator, "broadcast", text, name);
+    public void broadcast (String target, String originator, String name, String text) {
+        await(broadcastAsync(target, originator, name, text));
+    }
+
+    /**
+     * Asynchronous version of {@link #broadcast(String, String, String, String)}.
+     * @param target the group URN that you would like to broadcast you message to.
+     * @param originator the device URN that triggered the broadcast.
+     * @param name a name for your broadcast.
+     * @param text the text that you would like to broadcast to your group.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> broadcastAsync(String target, String originator, String name, String text) {
+        return sendNotification(target, originator, "broadcast", text, name);
+    }
+
+    /**
+     * Cancels the broadcast that was sent to a group of devices.
+     * @param target the device URN that is cancelling the broadcast.
+     * @param name the name of the broadcast that you would like to cancel.
+     */
+    @SuppressWarnings("unused")
+    public void cancelBroadcast(String target, String name) {
+        await(cancelBroadcastAsync(target, name));
     }
 
     /**
-     * Cancels the broadcast that was sent to a group of devices.
+     * Asynchronous version of {@link #cancelBroadcast(String, String)}.
      * @param target the device URN that is cancelling the broadcast.
      * @param name the name of the broadcast that you would like to cancel.
+     * @return a future completed once the server has handled the request.
      */
     @SuppressWarnings("unused")
-    public void cancelBroadcast(String target, String name) {
-        sendNotification(target, null, "cancel", null, name);
+    public CompletableFuture<Void> cancelBroadcastAsync(String target, String name) {
+        return sendNotification(target, null, "cancel", null, name);
     }
 
     /**
@@ -1081,8 +2202,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getDeviceName( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Name, refresh);
-        return resp != null ? resp.name : null;
+        return await(getDeviceNameAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceName(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the name of the device.
+     * @return a future completed with the name of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceNameAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Name, refresh).thenApply(resp -> resp != null ? resp.name : null);
     }
 
     /**
@@ -1093,8 +2224,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getDeviceId( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Id, refresh);
-        return resp != null ? resp.id : null;
+        return await(getDeviceIdAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceId(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the name of the device.
+     * @return a future completed with the device ID.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceIdAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Id, refresh).thenApply(resp -> resp != null ? resp.id : null);
     }
 
     /**
@@ -1105,8 +2246,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getDeviceLocation( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Address, refresh);
-        return resp != null ? resp.address : null;
+        return await(getDeviceLocationAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceLocation(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the location.
+     * @return a future completed with the location of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceLocationAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Address, refresh).thenApply(resp -> resp != null ? resp.address : null);
     }
 
     /**
@@ -1120,6 +2271,17 @@ public class Relay {
         return this.getDeviceLocation(target, refresh);
     }
 
+    /**
+     * Asynchronous version of {@link #getDeviceAddress(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the address.
+     * @return a future completed with the address of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceAddressAsync(String target, boolean refresh) {
+        return this.getDeviceLocationAsync(target, refresh);
+    }
+
     /**
      * Retrieves the coordinates of the device's location.
      * @param target the device or interaction URN.
@@ -1128,8 +2290,20 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public double[] getDeviceCoordinates( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.LatLong, refresh);
-        return resp != null ? resp.latlong : null;
+        return await(getDeviceCoordinatesAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceCoordinates(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the coordinates.
+     * @return a future completed with a double array containing the latitude and longitude of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<double[]> getDeviceCoordinatesAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.LatLong, refresh)
+                // the answer is cached, so the caller gets its own copy of the array
+                .thenApply(resp -> resp != null && resp.latlong != null ? resp.latlong.clone() : null);
     }
 
     /**
@@ -1143,6 +2317,17 @@ public class Relay {
         return this.getDeviceCoordinates(target, refresh);
     }
 
+    /**
+     * Asynchronous version of {@link #getDeviceLatLong(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the coordinates.
+     * @return a future completed with a double array containing the latitude and longitude of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<double[]> getDeviceLatLongAsync(String target, boolean refresh) {
+        return this.getDeviceCoordinatesAsync(target, refresh);
+    }
+
     /**
      * Returns the indoor location of a targeted device.
      * @param target the device or interaction URN.
@@ -1151,8 +2336,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getDeviceIndoorLocation( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.IndoorLocation, refresh);
-        return resp != null ? resp.indoor_location : null;
+        return await(getDeviceIndoorLocationAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceIndoorLocation(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the location.
+     * @return a future completed with the indoor location of the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceIndoorLocationAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.IndoorLocation, refresh).thenApply(resp -> resp != null ? resp.indoor_location : null);
     }
 
     /**
@@ -1163,8 +2358,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public int getDeviceBattery( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Battery, refresh);
-        return resp != null ? resp.battery : null;
+        return await(getDeviceBatteryAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceBattery(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the battery.
+     * @return a future completed with the battery of the device, or null if it could not be retrieved.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Integer> getDeviceBatteryAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Battery, refresh).thenApply(resp -> resp != null ? resp.battery : null);
     }
 
     /**
@@ -1175,8 +2380,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getDeviceType( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Type, refresh);
-        return resp != null ? resp.type : null;
+        return await(getDeviceTypeAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceType(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the device type.
+     * @return a future completed with the device type.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getDeviceTypeAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Type, refresh).thenApply(resp -> resp != null ? resp.type : null);
     }
 
     /**
@@ -1187,8 +2402,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public String getUserProfile( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.Username, refresh);
-        return resp != null ? resp.username : null;
+        return await(getUserProfileAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getUserProfile(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving the device user profile.
+     * @return a future completed with the user profile registered to the device.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<String> getUserProfileAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.Username, refresh).thenApply(resp -> resp != null ? resp.username : null);
     }
 
     /**
@@ -1200,34 +2425,134 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public Boolean getDeviceLocationEnabled( String target, boolean refresh) {
-        DeviceInfoResponse resp = getDeviceInfo( target, DeviceInfoQueryType.LocationEnabled, refresh);
-        return resp != null ? resp.location_enabled : null;
+        return await(getDeviceLocationEnabledAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceLocationEnabled(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether you would like to refresh before retrieving whether the device's location services are
+     *                enabled.
+     * @return a future completed with true if the device's location services are enabled, false otherwise.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Boolean> getDeviceLocationEnabledAsync(String target, boolean refresh) {
+        return getDeviceInfo( target, DeviceInfoQueryType.LocationEnabled, refresh).thenApply(resp -> resp != null ? resp.location_enabled : null);
     }
 
+    /**
+     * Returns everything there is to know about a device: its name, id, location,
+     * battery, type, username and whether location is enabled. A query is sent for
+     * each field not already known from an earlier one, up to nine, but they are
+     * sent together, so this costs about one round trip of latency. The device info
+     * calls that follow are answered without asking the device again.
+     * @param target the device or interaction URN.
+     * @return the device information. A field the device did not answer for is left unset.
+     * @see #setDeviceInfoTtl(DeviceInfoQueryType, Duration)
+     */
     @SuppressWarnings("unused")
-    private DeviceInfoResponse getDeviceInfo( String target, DeviceInfoQueryType query, boolean refresh) {
-        logger.debug("Getting device info: " + query + " refresh: " + refresh);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.GetDeviceInfo, target,
-                entry("query", query.value()),
-                entry("refresh", refresh)
-        );
+    public DeviceInfoResponse getDeviceSnapshot(String target) {
+        return await(getDeviceSnapshotAsync(target, false));
+    }
 
-        try {
-            MessageWrapper resp = sendRequest(req);
-            if (resp != null) {
-                return gson.fromJson(resp.messageJson, DeviceInfoResponse.class);
+    /**
+     * Returns everything there is to know about a device, asking the device to
+     * refresh it first if requested.
+     * @param target the device or interaction URN.
+     * @param refresh whether to ask for every field again rather than use what is already known.
+     * @return the device information. A field the device did not answer for is left unset.
+     * @see #getDeviceSnapshot(String)
+     */
+    @SuppressWarnings("unused")
+    public DeviceInfoResponse getDeviceSnapshot(String target, boolean refresh) {
+        return await(getDeviceSnapshotAsync(target, refresh));
+    }
+
+    /**
+     * Asynchronous version of {@link #getDeviceSnapshot(String, boolean)}.
+     * @param target the device or interaction URN.
+     * @param refresh whether to ask for every field again rather than use what is already known.
+     * @return a future completed with the device information.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<DeviceInfoResponse> getDeviceSnapshotAsync(String target, boolean refresh) {
+        DeviceInfoQueryType[] queries = DeviceInfoQueryType.values();
+        CompletableFuture<?>[] answers = new CompletableFuture<?>[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            answers[i] = getDeviceInfo(target, queries[i], refresh);
+        }
+        return CompletableFuture.allOf(answers).thenApply(done -> {
+            DeviceInfoResponse snapshot = new DeviceInfoResponse();
+            for (int i = 0; i < queries.length; i++) {
+                DeviceInfoResponse answer = (DeviceInfoResponse) answers[i].join();
+                if (answer != null) {
+                    DeviceInfoCache.copyField(queries[i], answer, snapshot);
+                }
             }
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error getting device info", e);
+            return snapshot;
+        });
+    }
+
+    /**
+     * Forgets everything this session has learned about a device, so that the
+     * next device info call for it asks the device again.
+     * @param target the device or interaction URN.
+     */
+    @SuppressWarnings("unused")
+    public void invalidateDeviceInfo(String target) {
+        deviceInfoCache.invalidate(target);
+        for (DeviceInfoQueryType query : DeviceInfoQueryType.values()) {
+            forgetDeviceInfoQueries(target, query);
         }
-        return null;
+    }
+
+    // Called both before a change to the device is sent, so that reads in the meantime ask the device,
+    // and once it is done, so that nothing answered before the change took effect is kept.
+    private void invalidateDeviceInfo(String target, DeviceInfoQueryType query) {
+        deviceInfoCache.invalidate(target, query);
+        forgetDeviceInfoQueries(target, query);
+    }
+
+    private void forgetDeviceInfoQueries(String target, DeviceInfoQueryType query) {
+        inFlightRequests.forget(RequestType.GetDeviceInfo, target, query.value(), null);
+        inFlightRequests.forget(RequestType.GetDeviceInfo, target, query.value(), "refresh");
+    }
+
+    // sends a change to a device, keeping what the session knows about the device in step with it
+    private CompletableFuture<Void> changeDevice(String target, DeviceInfoQueryType query, Supplier<CompletableFuture<Void>> change) {
+        invalidateDeviceInfo(target, query);
+        return change.get().whenComplete((done, e) -> invalidateDeviceInfo(target, query));
+    }
+
+    // Answers from the cache unless asked to refresh, or the answer has gone stale. Every answer
+    // received is cached, including those to refresh queries.
+    private CompletableFuture<DeviceInfoResponse> getDeviceInfo( String target, DeviceInfoQueryType query, boolean refresh) {
+        if (!refresh) {
+            DeviceInfoResponse cached = deviceInfoCache.get(target, query);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        logger.debug("Getting device info: " + query + " refresh: " + refresh);
+        return inFlightRequests.coalesce(RequestType.GetDeviceInfo, target, query.value(), refresh ? "refresh" : null, () -> {
+            RelayRequest req = RelayUtils.buildRequest(RequestType.GetDeviceInfo, target,
+                    entry("query", query.value()),
+                    entry("refresh", refresh)
+            );
+            long sentAt = deviceInfoCache.generation();
+            return requestAsync(req, "Error getting device info", null, resp -> {
+                DeviceInfoResponse info = gson.fromJson(resp.messageJson, DeviceInfoResponse.class);
+                deviceInfoCache.put(target, query, info, sentAt);
+                return info;
+            });
+        });
     }
 
     // setDeviceMode is currently not supported
 
     // public  void setDeviceMode( String target, DeviceMode mode) {
     //     logger.debug("Setting device mode: " + mode.value());
-    //     Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetDeviceMode, target,
+    //     RelayRequest req = RelayUtils.buildRequest(RequestType.SetDeviceMode, target,
     //             entry("mode", mode.value())
     //     );
 
@@ -1247,7 +2572,18 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void setDeviceName( String target, String name) {
-        setDeviceInfo( target, DeviceField.Label, name);
+        await(setDeviceNameAsync(target, name));
+    }
+
+    /**
+     * Asynchronous version of {@link #setDeviceName(String, String)}.
+     * @param target the device or interaction URN.
+     * @param name a new name for your device.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setDeviceNameAsync(String target, String name) {
+        return changeDevice(target, DeviceInfoQueryType.Name, () -> setDeviceInfo( target, DeviceField.Label, name));
     }
 
     /**
@@ -1257,7 +2593,17 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void enableLocation( String target) {
-        setLocationEnabled(target, true);
+        await(enableLocationAsync(target));
+    }
+
+    /**
+     * Asynchronous version of {@link #enableLocation(String)}.
+     * @param target the device or interaction URN.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> enableLocationAsync(String target) {
+        return setLocationEnabled(target, true);
     }
 
     /**
@@ -1267,12 +2613,22 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void disableLocation( String target) {
-        setLocationEnabled(target, false);
+        await(disableLocationAsync(target));
     }
 
+    /**
+     * Asynchronous version of {@link #disableLocation(String)}.
+     * @param target the device or interaction URN.
+     * @return a future completed once the server has handled the request.
+     */
     @SuppressWarnings("unused")
-    private void setLocationEnabled( String target, boolean enabled) {
-        setDeviceInfo( target, DeviceField.LocationEnabled, String.valueOf(enabled));
+    public CompletableFuture<Void> disableLocationAsync(String target) {
+        return setLocationEnabled(target, false);
+    }
+
+    private CompletableFuture<Void> setLocationEnabled( String target, boolean enabled) {
+        return changeDevice(target, DeviceInfoQueryType.LocationEnabled,
+                () -> setDeviceInfo( target, DeviceField.LocationEnabled, String.valueOf(enabled)));
     }
 
     // setDeviceChannel is currently not supported
@@ -1291,32 +2647,35 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void setChannel( String target, String channelName, boolean suppressTTS, boolean disableHomeChannel) {
+        await(setChannelAsync(target, channelName, suppressTTS, disableHomeChannel));
+    }
+
+    /**
+     * Asynchronous version of {@link #setChannel(String, String, boolean, boolean)}.
+     * @param target the device or interaction URN.
+     * @param channelName the name of the channel you would like to set your device to.
+     * @param suppressTTS whether you would like to surpress text to speech.
+     * @param disableHomeChannel whether you would like to disable the home channel.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setChannelAsync(String target, String channelName, boolean suppressTTS, boolean disableHomeChannel) {
         logger.debug("Setting channel: " + channelName + ": supresstts:" + suppressTTS + " disableHomeChannel:" + disableHomeChannel);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetChannel, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetChannel, target,
                 entry("channel_name", channelName),
                 entry("suppress_tts", suppressTTS),
                 entry("disable_home_channel", disableHomeChannel)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting channel", e);
-        }
+        return requestAsync(req, "Error setting channel");
     }
 
-    private void setDeviceInfo( String target, DeviceField field, String value) {
+    private CompletableFuture<Void> setDeviceInfo( String target, DeviceField field, String value) {
         logger.debug("Setting device info: " + field + ": " + value);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetDeviceInfo, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetDeviceInfo, target,
                 entry("field", field.value()),
                 entry("value", value)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting device info", e);
-        }
+        return requestAsync(req, "Error setting device info");
     }
 
     /**
@@ -1327,17 +2686,24 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void setUserProfile( String target, String username, boolean force) {
+        await(setUserProfileAsync(target, username, force));
+    }
+
+    /**
+     * Asynchronous version of {@link #setUserProfile(String, String, boolean)}.
+     * @param target the device URN whose profile you would like to update.
+     * @param username the updated username for the device.
+     * @param force whether you would like to force this update.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> setUserProfileAsync(String target, String username, boolean force) {
         logger.debug("Setting user profile: " + username + ": " + force);
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetUserProfile, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetUserProfile, target,
                 entry("username", username),
                 entry("force", force)
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting user profile", e);
-        }
+        return changeDevice(target, DeviceInfoQueryType.Username, () -> requestAsync(req, "Error setting user profile"));
     }
 
     /**
@@ -1346,7 +2712,17 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void enableHomeChannel(String target) {
-        setHomeChannelState(target, true);
+        await(enableHomeChannelAsync(target));
+    }
+
+    /**
+     * Asynchronous version of {@link #enableHomeChannel(String)}.
+     * @param target the device URN.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> enableHomeChannelAsync(String target) {
+        return setHomeChannelState(target, true);
     }
 
     /**
@@ -1355,20 +2731,25 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public void disableHomeChannel(String target) {
-        setHomeChannelState(target, false);
+        await(disableHomeChannelAsync(target));
+    }
+
+    /**
+     * Asynchronous version of {@link #disableHomeChannel(String)}.
+     * @param target the device URN.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> disableHomeChannelAsync(String target) {
+        return setHomeChannelState(target, false);
     }
 
-    private void setHomeChannelState(String target, boolean enabled) {
+    private CompletableFuture<Void> setHomeChannelState(String target, boolean enabled) {
         logger.debug("Setting home channel state.");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.SetHomeChannelState, target,
+        RelayRequest req = RelayUtils.buildRequest(RequestType.SetHomeChannelState, target,
             entry("enabled", enabled)               
         );
-
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            logger.error("Error setting home channel state", e);
-        }
+        return requestAsync(req, "Error setting home channel state");
     }
 
     // restart/powering down device is currently not supported
@@ -1384,7 +2765,7 @@ public class Relay {
     // }
 
     // private  void powerDownDevice( String target, boolean restart) {
-    //     Map<String, Object> req = RelayUtils.buildRequest(RequestType.PowerOff, target,
+    //     RelayRequest req = RelayUtils.buildRequest(RequestType.PowerOff, target,
     //             entry("restart", restart)
     //     );
 
@@ -1395,6 +2776,60 @@ public class Relay {
     //     }
     // }
 
+    /**
+     * Sends several requests at once and waits for all of their responses.
+     * The requests are written to the websocket back to back, so the batch
+     * takes about one round trip instead of one per request.  For example:
+     * <pre>
+     * relay.batch(b -&gt; b
+     *         .switchAllLedOn(sourceUri, "00ff00")
+     *         .vibrate(sourceUri, new int[]{100, 500})
+     *         .setVar("state", "started"));
+     * </pre>
+     * Waits at most the usual response timeout for the whole batch.
+     * @param requests adds the requests to the batch.
+     * @return the outcome of each request, in the order they were added.
+     */
+    @SuppressWarnings({"unused", "UnusedReturnValue"})
+    public BatchResult batch(Consumer<RequestBatch> requests) {
+        return batch(Duration.ofNanos(responseTimeoutNanos), requests);
+    }
+
+    /**
+     * Sends several requests at once and waits for all of their responses.
+     * Requests still unanswered when the deadline passes are reported as timed out.
+     * @param deadline how long to wait for the whole batch.
+     * @param requests adds the requests to the batch.
+     * @return the outcome of each request, in the order they were added.
+     * @see #batch(Consumer)
+     */
+    @SuppressWarnings({"unused", "UnusedReturnValue"})
+    public BatchResult batch(Duration deadline, Consumer<RequestBatch> requests) {
+        return await(batchAsync(deadline, requests));
+    }
+
+    /**
+     * Asynchronous version of {@link #batch(Duration, Consumer)}.
+     * @param deadline how long to wait for the whole batch.
+     * @param requests adds the requests to the batch.
+     * @return a future completed with the outcome of each request once all have completed.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<BatchResult> batchAsync(Duration deadline, Consumer<RequestBatch> requests) {
+        RequestBatch batch = new RequestBatch();
+        requests.accept(batch);
+        logger.debug("Sending batch of " + batch.requests.size() + " requests");
+        if (variables.enabled()) {
+            // variables the batch changes are read from the server again
+            for (RelayRequest request : batch.requests) {
+                if (request.type == RequestType.SetVar || request.type == RequestType.UnsetVar) {
+                    variables.forget((String) request.params[0].getValue());
+                }
+            }
+        }
+        return sendBatchAsync(batch, deadline);
+    }
+
     /**
      * Terminates a workflow.  This method is usually called
      * after your workflow has completed and you would like to end the
@@ -1402,19 +2837,30 @@ public class Relay {
      * the workflow.
      */
     public void terminate() {
+        await(terminateAsync());
+    }
+
+    /**
+     * Asynchronous version of {@link #terminate()}.
+     * @return a future completed once the server has handled the request.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> terminateAsync() {
         logger.debug("Terminating workflow");
-        Map<String, Object> req = RelayUtils.buildRequest(RequestType.Terminate);
-        try {
-            sendRequest(req);
-        } catch (EncodeException | IOException | InterruptedException e) {
-            if (e.getCause() instanceof java.nio.channels.ClosedChannelException) {
-                // looks like the websocket is already closed. If we are terminating, eat it.
-                logger.debug("websocket is already closed on terminate");
-            } else {
-                logger.error("Error terminating workflow", e);
+        flushVarsIfWriteBack();
+        RelayRequest req = RelayUtils.buildRequest(RequestType.Terminate);
+        return sendRequestAsync(req, false).handle((resp, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof EncodeException || cause instanceof IOException) {
+                if (cause.getCause() instanceof java.nio.channels.ClosedChannelException) {
+                    // looks like the websocket is already closed. If we are terminating, eat it.
+                    logger.debug("websocket is already closed on terminate");
+                } else {
+                    logger.error("Error terminating workflow", cause);
+                }
             }
-        }
-
+            return null;
+        });
     }
 
     // HELPER FUNCTIONS ##############
@@ -1463,58 +2909,56 @@ public class Relay {
     // The auth hostname used in URL when granting a new access token.
     static final String AUTH_HOSTNAME = "auth.relaygo.com";
 
-    private static String encodeQueryParams(Map<String, String> queryParams) {
-        // Create a new string builder and for each query parameter in queryParams, 
-        // add it to encodeData.  When all query parameters are added, return the encoded parameters.
-        var encodeData = new StringBuilder();
-        encodeData.append("?");
-        for(Map.Entry<String, String> param : queryParams.entrySet()) {
-            if(encodeData.length() > 0) {
-                encodeData.append("&");
+    private static volatile RelayHttpClient httpClient;
+
+    /**
+     * Replaces the client that {@link #triggerWorkflow} and {@link #fetchDevice} send their
+     * requests with, for example to point them at a different server or to give them
+     * different timeouts. Requests already sent finish on the client they were sent with.
+     * @param client the client to use from now on.
+     */
+    @SuppressWarnings("unused")
+    public static void setHttpClient(RelayHttpClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        httpClient = client;
+    }
+
+    /**
+     * Returns the client that {@link #triggerWorkflow} and {@link #fetchDevice} send their
+     * requests with, shared by every caller so that connections to the server are reused.
+     * Unless one was set with {@link #setHttpClient(RelayHttpClient)}, it is created the
+     * first time it is needed, talking to the Relay production servers.
+     * @return the shared HTTP client.
+     */
+    public static RelayHttpClient getHttpClient() {
+        RelayHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (Relay.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = RelayHttpClient.newBuilder().build();
+                    httpClient = client;
+                }
             }
-            encodeData.append(param.getKey());
-            encodeData.append("=");
-            encodeData.append(param.getValue());
         }
-        return encodeData.toString();
+        return client;
     }
 
-    private String updateAccessToken(String refreshToken, String clientId) {
-        // Create the URL String
-        String grantUrl = "https://" + AUTH_HOSTNAME + "/oauth2/token";
-        
-        // Create a Map that contains the payload to be sent with the request
-        Map<String, String> grantPayload = new LinkedHashMap<>();
-        grantPayload.put("client_id", clientId);
-        grantPayload.put("grant_type", "refresh_token");
-        grantPayload.put("refresh_token", refreshToken);
-        
-        // Create a new HttpClient and HttpRequest, and add the headers and URL to the request
-        HttpClient httpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_2)
-                    .build();
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .POST(HttpRequest.BodyPublishers.ofString(encodeQueryParams(grantPayload)))
-                    .uri(URI.create(grantUrl))
-                    .setHeader("User-Agent", SDK_VERSION)
-                    .setHeader("Content-Type", "application/json")
-                    .build();
-        
-        // Try to send the request, if you don't receive a status code of 200, throw an exception back to the client
+    // waits for an HTTP request, throwing what it failed with as a RuntimeException
+    private static <T> T awaitHttp(CompletableFuture<T> future, String errorMessage) {
         try {
-            var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() != 200) {
-                throw new HttpRetryException("Failed to retrieve access token with status code ", response.statusCode());
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(errorMessage, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-
-            // Create a Map so that we can easily retrieve the access token from the response body, and return the access token 
-            // back to the caller.
-            Gson gson = new Gson();
-            @SuppressWarnings("rawtypes") LinkedHashMap uncheckedMap = gson.fromJson(response.body(), LinkedHashMap.class);
-            return (String) uncheckedMap.get("access_token");
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Received exception when trying to update access token: ", e);
-        } 
+            throw new RuntimeException(errorMessage, e.getCause());
+        }
     }
 
     /**
@@ -1525,7 +2969,10 @@ public class Relay {
      * If the accessToken has expired and the request gets a 401 response,
      * a new access_token will be automatically generated via the refreshToken,
      * and the request will be resubmitted with the new accessToken. Otherwise
-     * the refresh token won't be used.
+     * the refresh token won't be used. Once a new access token has been
+     * generated, later calls with the same refresh token use it in place of
+     * the one passed in, and replace it shortly before it expires, so that
+     * callers holding an old token do not each get a 401 and refresh it.
      * This method will return a tuple of (requests.Response, access_token)
      * where you can inspect the http response, and get the updated access_token
      * if it was updated (otherwise the original access_token will be returned).
@@ -1551,64 +2998,51 @@ public class Relay {
                                                String clientId, String workflowId,
                                                String subscriberId, String userId,
                                                String[] targets, Map<String, String> actionArgs) {
-        // Create a Map containing the query parameters
-        Map<String, String> queryParams = new LinkedHashMap<>();
-        queryParams.put("subscriber_id", subscriberId);
-        queryParams.put("user_id", userId);
-
-        // Create the URL and append the encoded query parameters to the URL
-        String url = "https://" + SERVER_HOSTNAME + "/ibot/workflow/" + workflowId + encodeQueryParams(queryParams);
-
-        // Create a map containing the payload you would like to send with the request
-        Map<String, String> payload = new LinkedHashMap<>();
-        payload.put("action", "invoke");
-
-        // If the actionArgs or targets parameters are not null, add them to the payload
-        if (actionArgs != null) {
-            payload.put("action_args", actionArgs.toString());
-        }
-
-        if (targets != null) {
-            payload.put("target_device_ids", Arrays.toString(targets));
-        }
+        return awaitHttp(triggerWorkflowAsync(accessToken, refreshToken, clientId, workflowId, subscriberId, userId, targets, actionArgs),
+                "Received exception when attempting to trigger workflow: ");
+    }
 
-        // Create a new HttpClient and HttpRequest, and add the headers and URL to the request
-        Gson gson = new Gson();
-        HttpClient httpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_2)
-                    .build();
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload)))
-                    .uri(URI.create(url))
-                    .setHeader("User-Agent", SDK_VERSION)
-                    .setHeader("Authorization", "Bearer " + accessToken)
-                    .build();
-        
-        // Try to send the request.  If you receive a status code of 401, try to retrieve a new access token and retry the request
-        try {
-            var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 401) {
-                logger.debug("Got 401, retrieving a new access token");
-                accessToken = updateAccessToken(refreshToken, clientId);
-
-                httpRequest = HttpRequest.newBuilder()
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload)))
-                    .uri(URI.create(url))
-                    .setHeader("User-Agent", SDK_VERSION)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .build();
-                
-                response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            }
+    /**
+     * Asynchronous version of {@link #triggerWorkflow(String, String, String, String, String, String, String[], Map)},
+     * which does not tie up the calling thread while the server answers.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param workflowId the workflow_id as returned from "relay workflow list".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the target device, such as 990007560023456.
+     * @param targets the device URN on which you would like to trigger the workflow.
+     * @param actionArgs a Map of any key/value arguments you want to pass in to the workflow.
+     * @return a future completed with a Map containing the response and the access token.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Map<String, String>> triggerWorkflowAsync(String accessToken, String refreshToken,
+                                                                      String clientId, String workflowId,
+                                                                      String subscriberId, String userId,
+                                                                      String[] targets, Map<String, String> actionArgs) {
+        return getHttpClient().triggerWorkflowAsync(accessToken, refreshToken, clientId, workflowId, subscriberId, userId, targets, actionArgs);
+    }
 
-            // Create a Map that will hold the response body and access token, then return the Map to the client
-            Map<String, String> returnVal = new LinkedHashMap<>();
-            returnVal.put("response", response.body());
-            returnVal.put("access_token", accessToken);
-            return returnVal;
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Received exception when attempting to trigger workflow: ", e);
-        } 
+    /**
+     * Sends an HTTP trigger for each of a collection of invocations, such as one per device
+     * for a workflow started across the fleet, with at most {@code bulkTrigger}'s limit of
+     * triggers in flight and no faster than its rate limit. Build one invocation per device
+     * with {@link WorkflowInvocation#forEachTarget}.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param invocations the workflows to trigger.
+     * @param bulkTrigger the concurrency and rate limits to keep to.
+     * @param listener called with the outcome of each invocation as soon as it is known,
+     *         possibly from several threads at once.
+     * @return a future completed with latency and error statistics once every invocation has an outcome.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<BulkTriggerStats> triggerWorkflowsAsync(String accessToken, String refreshToken, String clientId,
+                                                                    Collection<WorkflowInvocation> invocations,
+                                                                    BulkTrigger bulkTrigger,
+                                                                    Consumer<BulkTrigger.Outcome> listener) {
+        return getHttpClient().triggerWorkflowsAsync(accessToken, refreshToken, clientId, invocations, bulkTrigger, listener);
     }
 
     /**
@@ -1630,50 +3064,23 @@ public class Relay {
      */
     @SuppressWarnings("unused")
     public Map<String, String> fetchDevice(String accessToken, String refreshToken, String clientId, String subscriberId, String userId) {
-        // Create a Map containing the query parameters
-        Map<String, String> queryParams = new LinkedHashMap<>();
-        queryParams.put("subscriber_id", subscriberId);
-
-        // Create a URL and append the encoded query parameters to the URL
-        String url = "https://" + SERVER_HOSTNAME + "/relaypro/api/v1/device/" + userId + encodeQueryParams(queryParams);
-
-        // Create a new HttpClient and HttpRequest, and add the headers and URL to the request
-        HttpClient httpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_2)
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
-
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .GET()
-                    .uri(URI.create(url))
-                    .setHeader("User-Agent", SDK_VERSION)
-                    .setHeader("Authorization", "Bearer " + accessToken)
-                    .build();
-        
-        // Try to send the request.  If you receive a status code of 401, try to retrieve a new access token and retry the request
-        try {
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 401) {
-                logger.debug("Got 401, retrieving a new access token");
-                accessToken = updateAccessToken(refreshToken, clientId);
-
-                httpRequest = HttpRequest.newBuilder()
-                        .GET()
-                        .uri(URI.create(url))
-                        .setHeader("User-Agent", SDK_VERSION)
-                        .setHeader("Authorization", "Bearer " + accessToken)
-                        .build();
-
-                response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            }
+        return awaitHttp(fetchDeviceAsync(accessToken, refreshToken, clientId, subscriberId, userId),
+                "Received exception when retrieving device information");
+    }
 
-            // Create a Map that will hold the response body and access token, then return the Map to the client
-            Map<String, String> returnVal = new LinkedHashMap<>();
-            returnVal.put("response", response.body());
-            returnVal.put("access_token", accessToken);
-            return returnVal;
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Received exception when retrieving device information", e);
-        } 
+    /**
+     * Asynchronous version of {@link #fetchDevice(String, String, String, String, String)},
+     * which does not tie up the calling thread while the server answers.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the target device, such as 990007560023456.
+     * @return a future completed with a Map containing the response and the access token.
+     */
+    @SuppressWarnings("unused")
+    public CompletableFuture<Map<String, String>> fetchDeviceAsync(String accessToken, String refreshToken, String clientId,
+                                                                  String subscriberId, String userId) {
+        return getHttpClient().fetchDeviceAsync(accessToken, refreshToken, clientId, subscriberId, userId);
     }
 }
@@ -0,0 +1,455 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSession;
+import java.net.HttpRetryException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends requests to the Relay server's HTTP API, such as HTTP triggers, outside
+ * of a workflow's websocket session.  One client is meant to be shared by
+ * everything that calls the API: it keeps its connections, and the TLS sessions
+ * and HTTP/2 streams on them, open between requests, so only the first request to
+ * each host pays for the handshake.  The SDK's shared client is returned by
+ * {@link Relay#getHttpClient()}, and can be replaced with one configured
+ * differently, for example pointing at a local stand-in for the server:
+ * <pre>
+ * Relay.setHttpClient(RelayHttpClient.newBuilder()
+ *         .serverUri(URI.create("http://localhost:8080"))
+ *         .build());
+ * </pre>
+ */
+public class RelayHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayHttpClient.class);
+    private static final Gson gson = new Gson();
+
+    // how many refresh tokens' providers are kept; one that is dropped is made again if used again
+    private static final int TOKEN_PROVIDERS = 64;
+
+    private final HttpClient httpClient;
+    private final String serverUri;
+    private final String authUri;
+    private final Duration requestTimeout;      // null for no limit
+    private final long tokenRefreshMarginNanos;
+    // guarded by itself; the providers used most recently, so that refresh tokens no longer used are let go
+    private final Map<String, AccessTokenProvider> tokenProviders =
+            new LinkedHashMap<String, AccessTokenProvider>(TOKEN_PROVIDERS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AccessTokenProvider> eldest) {
+            return size() > TOKEN_PROVIDERS;
+        }
+    };
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder tokenRefreshes = new LongAdder();
+    private final LongAdder newConnections = new LongAdder();
+    private final LongAdder reusedConnections = new LongAdder();
+    // the TLS sessions seen so far, weakly so that closed ones can go
+    private final Set<SSLSession> tlsSessions = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private RelayHttpClient(Builder builder) {
+        HttpClient.Builder client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(builder.connectTimeout);
+        if (builder.executor != null) {
+            client.executor(builder.executor);
+        }
+        this.httpClient = client.build();
+        this.serverUri = withoutTrailingSlash(builder.serverUri);
+        this.authUri = withoutTrailingSlash(builder.authUri);
+        this.requestTimeout = builder.requestTimeout;
+        this.tokenRefreshMarginNanos = builder.tokenRefreshMargin.toNanos();
+    }
+
+    /**
+     * Returns a builder for a client, set up to talk to the Relay production servers.
+     * @return a new builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Asynchronous version of {@link Relay#triggerWorkflow(String, String, String, String, String, String, String[], Map)}.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param workflowId the workflow_id as returned from "relay workflow list".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the target device, such as 990007560023456.
+     * @param targets the device URN on which you would like to trigger the workflow.
+     * @param actionArgs a Map of any key/value arguments you want to pass in to the workflow.
+     * @return a future completed with a Map containing the response and the access token.
+     */
+    public CompletableFuture<Map<String, String>> triggerWorkflowAsync(String accessToken, String refreshToken,
+                                                                      String clientId, String workflowId,
+                                                                      String subscriberId, String userId,
+                                                                      String[] targets, Map<String, String> actionArgs) {
+        return sendAuthorized(triggerRequest(workflowId, subscriberId, userId, targets, actionArgs),
+                accessToken, refreshToken, clientId, RelayHttpClient::result);
+    }
+
+    /**
+     * Triggers a workflow once for each of a collection of invocations, such as one per
+     * device, keeping to the concurrency and rate limits of the bulk trigger. Each
+     * outcome is passed to the listener as soon as it is known.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param invocations the workflows to trigger.
+     * @param bulkTrigger the limits to keep to.
+     * @param listener called with the outcome of each invocation, possibly from several threads at once.
+     * @return a future completed with statistics on all the invocations once every one has an outcome.
+     */
+    public CompletableFuture<BulkTriggerStats> triggerWorkflowsAsync(String accessToken, String refreshToken, String clientId,
+                                                                    Collection<WorkflowInvocation> invocations,
+                                                                    BulkTrigger bulkTrigger,
+                                                                    Consumer<BulkTrigger.Outcome> listener) {
+        return bulkTrigger.run(this, accessToken, refreshToken, clientId, invocations, listener);
+    }
+
+    // Sends an HTTP trigger for the invocation, completing with whatever the server answered.
+    <R> CompletableFuture<R> triggerAsync(String accessToken, String refreshToken, String clientId,
+                                          WorkflowInvocation invocation, BiFunction<HttpResponse<String>, String, R> answer) {
+        return sendAuthorized(triggerRequest(invocation.getWorkflowId(), invocation.getSubscriberId(), invocation.getUserId(),
+                        invocation.getTargets(), invocation.getActionArgs()),
+                accessToken, refreshToken, clientId, answer);
+    }
+
+    private Function<String, HttpRequest> triggerRequest(String workflowId, String subscriberId, String userId,
+                                                         String[] targets, Map<String, String> actionArgs) {
+        // Create a Map containing the query parameters
+        Map<String, String> queryParams = new LinkedHashMap<>();
+        queryParams.put("subscriber_id", subscriberId);
+        queryParams.put("user_id", userId);
+
+        // Create the URL and append the encoded query parameters to the URL
+        URI url = URI.create(serverUri + "/ibot/workflow/" + workflowId + encodeQueryParams(queryParams));
+
+        // Create a map containing the payload you would like to send with the request
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("action", "invoke");
+
+        // If the actionArgs or targets parameters are not null, add them to the payload
+        if (actionArgs != null) {
+            payload.put("action_args", actionArgs.toString());
+        }
+
+        if (targets != null) {
+            payload.put("target_device_ids", Arrays.toString(targets));
+        }
+        String body = gson.toJson(payload);
+
+        return token -> newRequest(url, token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Asynchronous version of {@link Relay#fetchDevice(String, String, String, String, String)}.
+     * @param accessToken the current access token, replaced with a new one if it has expired.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the target device, such as 990007560023456.
+     * @return a future completed with a Map containing the response and the access token.
+     */
+    public CompletableFuture<Map<String, String>> fetchDeviceAsync(String accessToken, String refreshToken,
+                                                                  String clientId, String subscriberId, String userId) {
+        // Create a Map containing the query parameters
+        Map<String, String> queryParams = new LinkedHashMap<>();
+        queryParams.put("subscriber_id", subscriberId);
+
+        // Create a URL and append the encoded query parameters to the URL
+        URI url = URI.create(serverUri + "/relaypro/api/v1/device/" + userId + encodeQueryParams(queryParams));
+
+        return sendAuthorized(token -> newRequest(url, token).GET().build(), accessToken, refreshToken, clientId,
+                RelayHttpClient::result);
+    }
+
+    /**
+     * Returns the provider that keeps the access token for a refresh token, shared by
+     * every request this client sends on its behalf. Callers that keep their own copy
+     * of the token can ask it for the current one rather than waiting for a 401. The
+     * client keeps the providers of the refresh tokens used most recently, so one not used
+     * in a while may be replaced with a new provider.
+     * @param refreshToken the permanent refresh_token that can be used to obtain a new access_token.
+     * @param clientId the auth_sdk_id as returned from "relay env".
+     * @return the provider for the refresh token.
+     */
+    public AccessTokenProvider getTokenProvider(String refreshToken, String clientId) {
+        synchronized (tokenProviders) {
+            return tokenProviders.computeIfAbsent(clientId + "\n" + refreshToken,
+                    key -> new AccessTokenProvider(this, refreshToken, clientId, tokenRefreshMarginNanos));
+        }
+    }
+
+    // Exchanges the refresh token for a new access token. Completes exceptionally with an
+    // HttpRetryException if the auth server does not answer with a 200.
+    CompletableFuture<AccessTokenProvider.Token> updateAccessTokenAsync(String refreshToken, String clientId) {
+        // Create a Map that contains the payload to be sent with the request
+        Map<String, String> grantPayload = new LinkedHashMap<>();
+        grantPayload.put("client_id", clientId);
+        grantPayload.put("grant_type", "refresh_token");
+        grantPayload.put("refresh_token", refreshToken);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(encodeQueryParams(grantPayload)))
+                .uri(URI.create(authUri + "/oauth2/token"))
+                .setHeader("User-Agent", Relay.SDK_VERSION)
+                .setHeader("Content-Type", "application/json");
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+
+        // If you don't receive a status code of 200, fail with an exception back to the client
+        tokenRefreshes.increment();
+        return send(request.build()).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(
+                        new HttpRetryException("Failed to retrieve access token with status code ", response.statusCode()));
+            }
+            // Create a Map so that we can easily retrieve the access token and its lifetime from the response body
+            @SuppressWarnings("rawtypes") LinkedHashMap uncheckedMap = gson.fromJson(response.body(), LinkedHashMap.class);
+            Object expiresIn = uncheckedMap.get("expires_in");
+            return AccessTokenProvider.Token.of((String) uncheckedMap.get("access_token"),
+                    expiresIn instanceof Number ? ((Number) expiresIn).longValue() : -1);
+        }).handle((token, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                throw new CompletionException(new RuntimeException("Received exception when trying to update access token: ", cause));
+            }
+            return token;
+        });
+    }
+
+    // Sends the request with the current access token for the refresh token, which is the caller's
+    // until a newer one has been retrieved. If that gets a 401, waits for a new access token, retrieved
+    // once however many requests were turned away with the same one, and sends the request again with it.
+    private <R> CompletableFuture<R> sendAuthorized(Function<String, HttpRequest> request, String accessToken,
+                                                    String refreshToken, String clientId,
+                                                    BiFunction<HttpResponse<String>, String, R> answer) {
+        AccessTokenProvider tokens = getTokenProvider(refreshToken, clientId);
+        return tokens.currentAsync(accessToken).thenCompose(token -> send(request.apply(token)).thenCompose(response -> {
+            if (response.statusCode() != 401) {
+                return CompletableFuture.completedFuture(answer.apply(response, token));
+            }
+            logger.debug("Got 401, retrieving a new access token");
+            return tokens.refreshAsync(token).thenCompose(newToken ->
+                    send(request.apply(newToken)).thenApply(retried -> answer.apply(retried, newToken)));
+        }));
+    }
+
+    private HttpRequest.Builder newRequest(URI url, String accessToken) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(url)
+                .setHeader("User-Agent", Relay.SDK_VERSION)
+                .setHeader("Authorization", "Bearer " + accessToken);
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+        return request;
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        requests.increment();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, e) -> {
+            if (e != null) {
+                failures.increment();
+                return;
+            }
+            // a TLS session seen before means the request went over a connection that was already open
+            response.sslSession().ifPresent(session -> {
+                if (tlsSessions.add(session)) {
+                    newConnections.increment();
+                } else {
+                    reusedConnections.increment();
+                }
+            });
+        });
+    }
+
+    // a Map that holds the response body and access token, as returned to the client
+    private static Map<String, String> result(HttpResponse<String> response, String accessToken) {
+        Map<String, String> returnVal = new LinkedHashMap<>();
+        returnVal.put("response", response.body());
+        returnVal.put("access_token", accessToken);
+        return returnVal;
+    }
+
+    private static String encodeQueryParams(Map<String, String> queryParams) {
+        // Create a new string builder and for each query parameter in queryParams,
+        // add it to encodeData.  When all query parameters are added, return the encoded parameters.
+        StringBuilder encodeData = new StringBuilder();
+        encodeData.append("?");
+        for(Map.Entry<String, String> param : queryParams.entrySet()) {
+            if(encodeData.length() > 0) {
+                encodeData.append("&");
+            }
+            encodeData.append(param.getKey());
+            encodeData.append("=");
+            encodeData.append(param.getValue());
+        }
+        return encodeData.toString();
+    }
+
+    private static String withoutTrailingSlash(URI uri) {
+        String s = uri.toString();
+        return s.endsWith("/") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    /**
+     * Returns how many requests this client has sent, including retries after an expired access token.
+     * @return the number of requests sent.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns how many requests failed without a response, for example because the server could not be reached.
+     * @return the number of failed requests.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns how many times this client has asked the auth server for a new access token.
+     * @return the number of token refreshes.
+     */
+    public long getTokenRefreshCount() {
+        return tokenRefreshes.sum();
+    }
+
+    /**
+     * Returns how many responses arrived over a TLS connection opened for them, each of
+     * which cost a handshake.
+     * @return the number of new TLS connections.
+     */
+    public long getNewConnectionCount() {
+        return newConnections.sum();
+    }
+
+    /**
+     * Returns how many responses arrived over a TLS connection that was already open.
+     * Together with {@link #getNewConnectionCount()}, this shows how well connections are
+     * being reused. Plain HTTP connections are counted by neither.
+     * @return the number of responses on reused TLS connections.
+     */
+    public long getReusedConnectionCount() {
+        return reusedConnections.sum();
+    }
+
+    /**
+     * Configures a {@link RelayHttpClient}.
+     */
+    public static class Builder {
+        private URI serverUri = URI.create("https://" + Relay.SERVER_HOSTNAME);
+        private URI authUri = URI.create("https://" + Relay.AUTH_HOSTNAME);
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration requestTimeout = null;
+        private Duration tokenRefreshMargin = Duration.ofSeconds(60);
+        private Executor executor = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets where the Relay server is, for HTTP triggers and device queries.
+         * @param serverUri the scheme, host and port of the server, such as https://all-main-pro-ibot.relaysvr.com.
+         * @return this builder.
+         */
+        public Builder serverUri(URI serverUri) {
+            this.serverUri = serverUri;
+            return this;
+        }
+
+        /**
+         * Sets where the auth server is, for exchanging a refresh token for an access token.
+         * @param authUri the scheme, host and port of the auth server, such as https://auth.relaygo.com.
+         * @return this builder.
+         */
+        public Builder authUri(URI authUri) {
+            this.authUri = authUri;
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for a new connection to be established. Defaults to 10 seconds.
+         * @param connectTimeout the connect timeout.
+         * @return this builder.
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for each response. By default there is no limit.
+         * @param requestTimeout the request timeout, or null for no limit.
+         * @return this builder.
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how long before an access token expires to start retrieving its replacement,
+         * so that requests are not turned away while it is retrieved. Only applies to tokens
+         * whose lifetime the auth server gave. Defaults to 60 seconds.
+         * @param tokenRefreshMargin how long before expiry to refresh an access token.
+         * @return this builder.
+         */
+        public Builder tokenRefreshMargin(Duration tokenRefreshMargin) {
+            this.tokenRefreshMargin = tokenRefreshMargin;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs the client's background work and completes its
+         * futures. By default the client creates its own.
+         * @param executor the executor.
+         * @return this builder.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Creates the client.
+         * @return a new client.
+         */
+        public RelayHttpClient build() {
+            return new RelayHttpClient(this);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+/**
+ * Receives measurements of what the SDK is doing, for whatever metrics system the
+ * application uses.  Set one with {@link Relay#setMetrics(RelayMetrics)}; by default
+ * measurements go to {@link #NOOP} and cost nothing.  {@link InMemoryRelayMetrics}
+ * keeps them in histograms that can be read from the application.
+ * <p>
+ * Methods are called on the SDK's websocket, worker and completion threads as things
+ * happen, often several at once, so they must be thread-safe and return quickly,
+ * and should not allocate if the metrics are to stay on in production.  Every
+ * method does nothing unless overridden.
+ */
+public interface RelayMetrics {
+
+    /**
+     * Measurements that are dropped.
+     */
+    RelayMetrics NOOP = new RelayMetrics() { };
+
+    /**
+     * A request was sent to the server and is waiting on its response.
+     * @param type the type of request.
+     */
+    default void requestSent(RequestType type) {
+    }
+
+    /**
+     * A request got its response.
+     * @param type the type of request.
+     * @param roundTripNanos how long it took, from being sent to the response arriving.
+     */
+    default void requestAnswered(RequestType type, long roundTripNanos) {
+    }
+
+    /**
+     * A request gave up waiting on its response, after its response timeout or deadline.
+     * @param type the type of request.
+     */
+    default void requestTimedOut(RequestType type) {
+    }
+
+    /**
+     * A request ended without a response for another reason, such as an error from the
+     * server, the workflow stopping or the caller cancelling it.
+     * @param type the type of request.
+     */
+    default void requestFailed(RequestType type) {
+    }
+
+    /**
+     * A response arrived for a request that was no longer waiting on it, for example
+     * because it had timed out.
+     */
+    default void orphanedResponse() {
+    }
+
+    /**
+     * An event arrived from the server and was decoded.
+     * @param type the type of event.
+     * @param decodeNanos how long decoding the message took.
+     */
+    default void eventDecoded(EventType type, long decodeNanos) {
+    }
+
+    /**
+     * A workflow callback returned.
+     * @param type the type of event, which names the {@link Workflow} method that handled it.
+     * @param callbackNanos how long the callback ran.
+     */
+    default void callbackCompleted(EventType type, long callbackNanos) {
+    }
+
+    /**
+     * An event was queued for a session's workflow callbacks.
+     * @param workflowName the name the workflow was added with.
+     * @param depth how many events were waiting in the session's queue just after this one was added.
+     */
+    default void eventQueued(String workflowName, int depth) {
+    }
+
+}
@@ -0,0 +1,30 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.Map;
+
+/**
+ * A request to be sent to the server: its type, its id, and its parameters in the
+ * order they were given.  Built by {@link RelayUtils#buildRequest} and written out
+ * by a {@link RequestEncoder}.
+ */
+class RelayRequest {
+
+    final RequestType type;
+    String id;                                  // assigned by the session that sends the request
+    final Object target;                        // the _target, or null if the request has none
+    final Map.Entry<String, Object>[] params;
+
+    RelayRequest(RequestType type, Object target, Map.Entry<String, Object>[] params) {
+        this.type = type;
+        this.target = target;
+        this.params = params;
+    }
+
+    @Override
+    public String toString() {
+        return type.value() + "#" + id;
+    }
+
+}
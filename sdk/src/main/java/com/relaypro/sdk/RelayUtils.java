@@ -2,73 +2,109 @@
 
 package com.relaypro.sdk;
 
+import com.relaypro.sdk.types.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.*;
 
 import static java.util.Map.entry;
 
 class RelayUtils {
-    static Random random = new Random();
     private static final Logger logger = LoggerFactory.getLogger(RelayUtils.class);
     
+    // the events each Workflow subclass overrides a callback for, worked out once per class
+    private static final ClassValue<Set<EventType>> HANDLED_EVENTS = new ClassValue<Set<EventType>>() {
+        @Override
+        protected Set<EventType> computeValue(Class<?> type) {
+            Set<EventType> handled = EnumSet.noneOf(EventType.class);
+            for (EventType eventType : EventType.values()) {
+                try {
+                    if (type.getMethod(eventType.callback(), Relay.class, eventType.eventClass()).getDeclaringClass() != Workflow.class) {
+                        handled.add(eventType);
+                    }
+                } catch (NoSuchMethodException e) {
+                    logger.error("No event callback " + eventType.callback(), e);
+                }
+            }
+            return handled;
+        }
+    };
+
+    // Calls the Workflow callback for the event. Dispatching on the EventType compiles to a table
+    // jump and a plain virtual call, so there is no per-event method lookup or reflection.
+    // Events the workflow has no callback for are dropped before their body is ever decoded.
     static void invokeEventCallback(MessageWrapper messageWrapper, Relay relay) {
-        // invoke the callback using reflection
-        String methodName = "on" + toCamelCase(messageWrapper.type);
+        EventType eventType = messageWrapper.eventType;
+        if (eventType == null) {
+            // e.g. progress events, which only matter to the request they belong to
+            logger.debug("No event callback for " + messageWrapper._type);
+            return;
+        }
+        if (!HANDLED_EVENTS.get(relay.workflow.getClass()).contains(eventType)) {
+            return;
+        }
+        RelayMetrics metrics = Relay.metrics;
+        boolean measured = metrics != RelayMetrics.NOOP;
+        long start = measured ? System.nanoTime() : 0;
+        Object event = messageWrapper.eventObject();
+        if (event == null) {
+            return;
+        }
+        long decoded = 0;
+        if (measured) {
+            decoded = System.nanoTime();
+            metrics.eventDecoded(eventType, messageWrapper.envelopeNanos + decoded - start);
+        }
+        Workflow workflow = relay.workflow;
         try {
-            Method method = Workflow.class.getMethod(methodName, Relay.class, messageWrapper.eventObject.getClass());
-            method.invoke(relay.workflow, relay, messageWrapper.eventObject);
-        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-            logger.error("Error invoking event callback for " + methodName, e);
+            switch (eventType) {
+                case Start: workflow.onStart(relay, (StartEvent) event); break;
+                case Stop: workflow.onStop(relay, (StopEvent) event); break;
+                case InteractionLifecycle: workflow.onInteractionLifecycle(relay, (InteractionLifecycleEvent) event); break;
+                case Prompt: workflow.onPrompt(relay, (PromptEvent) event); break;
+                case Timer: workflow.onTimer(relay, (TimerEvent) event); break;
+                case TimerFired: workflow.onTimerFired(relay, (TimerFiredEvent) event); break;
+                case Button: workflow.onButton(relay, (ButtonEvent) event); break;
+                case Notification: workflow.onNotification(relay, (NotificationEvent) event); break;
+                case Sms: workflow.onSms(relay, (SmsEvent) event); break;
+                case Speech: workflow.onSpeech(relay, (SpeechEvent) event); break;
+                case Incident: workflow.onIncident(relay, (IncidentEvent) event); break;
+                case CallStart: workflow.onCallStartRequest(relay, (CallStartEvent) event); break;
+                case CallReceived: workflow.onCallReceived(relay, (CallReceivedEvent) event); break;
+                case CallRinging: workflow.onCallRinging(relay, (CallRingingEvent) event); break;
+                case CallProgressing: workflow.onCallProgressing(relay, (CallProgressingEvent) event); break;
+                case CallConnected: workflow.onCallConnected(relay, (CallConnectedEvent) event); break;
+                case CallDisconnected: workflow.onCallDisconnected(relay, (CallDisconnectedEvent) event); break;
+                case CallFailed: workflow.onCallFailed(relay, (CallFailedEvent) event); break;
+                case PlayInboxMessages: workflow.onPlayInboxMessage(relay, (PlayInboxMessagesEvent) event); break;
+                default: logger.error("No event callback for " + messageWrapper._type);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error invoking event callback for " + eventType, e);
         }
-    }
-    
-    static String makeId() {
-        StringBuilder s = new StringBuilder();
-        for (int i=0; i<16; i++) {
-            int num = random.nextInt(16);
-            s.append(Integer.toHexString(num));
+        if (measured) {
+            metrics.callbackCompleted(eventType, System.nanoTime() - decoded);
         }
-        return s.toString();
     }
-
+    
     static Map<String, Object> makeTarget(String sourceUri) {
         return Map.ofEntries(
                 new AbstractMap.SimpleEntry<>("uris", new String[]{sourceUri})
         );
     }
     
-    static String toCamelCase(String snakeCase) {
-        String[] matches = snakeCase.split("_");
-        StringBuilder out = new StringBuilder();
-        for(String match : matches) {
-            out.append(Character.toUpperCase(match.charAt(0))).append(match.substring(1));
-        }
-        return out.toString();
-    }
-
+    // The params array is kept by the request, but it is only ever read, as Map.Entry<String, Object>.
     @SafeVarargs
-    static Map<String, Object> buildRequest(RequestType type, Map.Entry<String, Object> ...params) {
-        Map<String, Object> map = Map.ofEntries(
-                entry("_id", RelayUtils.makeId()),
-                entry("_type", type.value())
-        );
-
-        Map<String, Object> paramsMap = Map.ofEntries(params);
-        Map<String, Object> ret = new HashMap<>(paramsMap);
-        ret.putAll(map);
-        ret.putAll(paramsMap);
-        return ret;
+    @SuppressWarnings("varargs")
+    static RelayRequest buildRequest(RequestType type, Map.Entry<String, Object> ...params) {
+        return new RelayRequest(type, null, params);
     }
 
     @SafeVarargs
-    static Map<String, Object> buildRequest(RequestType type, String sourceUri, Map.Entry<String, Object> ...params) {
-        Map<String, Object> map = buildRequest(type, params);
-        map.put("_target", RelayUtils.makeTarget(sourceUri));
-        return map;
+    @SuppressWarnings("varargs")
+    static RelayRequest buildRequest(RequestType type, String sourceUri, Map.Entry<String, Object> ...params) {
+        return new RelayRequest(type, RelayUtils.makeTarget(sourceUri), params);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -0,0 +1,297 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceField;
+import com.relaypro.sdk.types.LedEffect;
+import com.relaypro.sdk.types.LedInfo;
+import com.relaypro.sdk.types.TimeoutType;
+import com.relaypro.sdk.types.TimerType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Map.entry;
+
+/**
+ * A set of requests to send to the server together, see {@link Relay#batch(java.util.function.Consumer)}.
+ * All requests are written back to back before any response is awaited, so the
+ * batch costs about one round trip rather than one per request.  Only actions
+ * whose response carries no data can be batched.  The methods have the same
+ * meaning and parameters as the matching methods on {@link Relay}.
+ */
+public class RequestBatch {
+
+    final List<RelayRequest> requests = new ArrayList<>();
+
+    RequestBatch() {
+    }
+
+    private RequestBatch add(RelayRequest request) {
+        requests.add(request);
+        return this;
+    }
+
+    /**
+     * Adds a {@link Relay#switchLedOn(String, int, String)} request.
+     * @param target the interaction URN.
+     * @param index the index of the LED, numbered 1-12.
+     * @param color the hex color code you would like to turn the LED to.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch switchLedOn(String target, int index, String color) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setColor(Integer.toString(index), color);
+        return add(Relay.ledsRequest(target, LedEffect.STATIC, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#switchAllLedOn(String, String)} request.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like the LEDs to be.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch switchAllLedOn(String target, String color) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setColor("ring", color);
+        return add(Relay.ledsRequest(target, LedEffect.STATIC, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#switchAllLedOff(String)} request.
+     * @param target the interaction URN.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch switchAllLedOff(String target) {
+        return add(Relay.ledsRequest(target, LedEffect.OFF, new LedInfo().ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#rainbow(String, int)} request.
+     * @param target the interaction URN.
+     * @param rotations the number of times you would like the rainbow to rotate.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch rainbow(String target, int rotations) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setRotations(rotations);
+        return add(Relay.ledsRequest(target, LedEffect.RAINBOW, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#rotate(String, String, int)} request.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param rotations the number of times you would like the LEDs to rotate.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch rotate(String target, String color, int rotations) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setRotations(rotations);
+        ledInfo.setColor("1", color);
+        return add(Relay.ledsRequest(target, LedEffect.ROTATE, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#flash(String, String, int)} request.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param count the number of times you would like the LEDs to flash.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch flash(String target, String color, int count) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setCount(count);
+        ledInfo.setColor("ring", color);
+        return add(Relay.ledsRequest(target, LedEffect.FLASH, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#breathe(String, String, int)} request.
+     * @param target the interaction URN.
+     * @param color the hex color code you would like to turn the LEDs to.
+     * @param count the number of times you would like the LEDs to flash.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch breathe(String target, String color, int count) {
+        LedInfo ledInfo = new LedInfo();
+        ledInfo.setCount(count);
+        ledInfo.setColor("ring", color);
+        return add(Relay.ledsRequest(target, LedEffect.BREATHE, ledInfo.ledMap));
+    }
+
+    /**
+     * Adds a {@link Relay#vibrate(String, int[])} request.
+     * @param target the interaction URN.
+     * @param pattern an array representing the pattern of your vibration.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch vibrate(String target, int[] pattern) {
+        return add(RelayUtils.buildRequest(RequestType.Vibrate, target,
+                entry("pattern", pattern)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#setVar(String, String)} request.
+     * @param name name of the variable to be created.
+     * @param value value that the variable will hold.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch setVar(String name, String value) {
+        return add(RelayUtils.buildRequest(RequestType.SetVar,
+                entry("name", name),
+                entry("value", value)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#unsetVar(String)} request.
+     * @param name the name of the variable whose value you would like to unset.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch unsetVar(String name) {
+        return add(RelayUtils.buildRequest(RequestType.UnsetVar,
+                entry("name", name)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#alert(String, String, String, String)} request.
+     * @param target the group URN that you would like to send an alert to.
+     * @param originator the URN of the device that triggered the alert.
+     * @param name a name for your alert.
+     * @param text the text that you would like to be spoken to the group as your alert.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch alert(String target, String originator, String name, String text) {
+        return add(Relay.notificationRequest(target, originator, "alert", text, name));
+    }
+
+    /**
+     * Adds a {@link Relay#cancelAlert(String, String)} request.
+     * @param target the device URN that has acknowledged the alert.
+     * @param name the name of the alert.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch cancelAlert(String target, String name) {
+        return add(Relay.notificationRequest(target, null, "cancel", null, name));
+    }
+
+    /**
+     * Adds a {@link Relay#broadcast(String, String, String, String)} request.
+     * @param target the group URN that you would like to broadcast you message to.
+     * @param originator the device URN that triggered the broadcast.
+     * @param name a name for your broadcast.
+     * @param text the text that you would like to broadcast to your group.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch broadcast(String target, String originator, String name, String text) {
+        return add(Relay.notificationRequest(target, originator, "broadcast", text, name));
+    }
+
+    /**
+     * Adds a {@link Relay#cancelBroadcast(String, String)} request.
+     * @param target the device URN that is cancelling the broadcast.
+     * @param name the name of the broadcast that you would like to cancel.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch cancelBroadcast(String target, String name) {
+        return add(Relay.notificationRequest(target, null, "cancel", null, name));
+    }
+
+    /**
+     * Adds a {@link Relay#setTimer(TimerType, String, long, TimeoutType)} request.
+     * @param timerType can be 'timeout' or 'interval'. Defaults to 'timeout'.
+     * @param name a name for your timer.
+     * @param timeout an integer representing when you would like your timer to fire.
+     * @param timeoutType can be 'ms', 'secs', 'mins' or 'hrs'. Defaults to 'secs'.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch setTimer(TimerType timerType, String name, long timeout, TimeoutType timeoutType) {
+        return add(RelayUtils.buildRequest(RequestType.SetTimer,
+                entry("type", timerType.value()),
+                entry("name", name),
+                entry("timeout", timeout),
+                entry("timeout_type", timeoutType.value())
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#clearTimer(String)} request.
+     * @param name the name of the timer that you would like to clear.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch clearTimer(String name) {
+        return add(RelayUtils.buildRequest(RequestType.ClearTimer,
+                entry("name", name)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#startTimer(int)} request.
+     * @param timeout the number of seconds you would like to wait until the timer fires.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch startTimer(int timeout) {
+        return add(RelayUtils.buildRequest(RequestType.StartTimer,
+                entry("timeout", timeout)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#stopTimer()} request.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch stopTimer() {
+        return add(RelayUtils.buildRequest(RequestType.StopTimer));
+    }
+
+    /**
+     * Adds a {@link Relay#logMessage(String, String)} request.
+     * @param message a description for your analytical event.
+     * @param category a category for your analytical event
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch logMessage(String message, String category) {
+        return add(RelayUtils.buildRequest(RequestType.LogAnalytics,
+                entry("content", message),
+                entry("content_type", "text/plain"),
+                entry("category", category)
+        ));
+    }
+
+    /**
+     * Adds a {@link Relay#setDeviceName(String, String)} request.
+     * @param target the device or interaction URN.
+     * @param name a new name for your device.
+     * @return this batch.
+     */
+    @SuppressWarnings("unused")
+    public RequestBatch setDeviceName(String target, String name) {
+        return add(RelayUtils.buildRequest(RequestType.SetDeviceInfo, target,
+                entry("field", DeviceField.Label.value()),
+                entry("value", name)
+        ));
+    }
+
+}
@@ -0,0 +1,151 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes requests as JSON into a buffer that is reused from one request to the next.
+ * Each session has its own encoder, and it must only be used by one thread at a time.
+ * The constant parts of a request, such as its _type, are written from fragments
+ * prepared once per {@link RequestType}, and common parameter values are written
+ * directly rather than through reflection.
+ */
+class RequestEncoder {
+
+    // don't hold on to the buffer grown by an unusually large request
+    private static final int MAX_RETAINED_CHARS = 16 * 1024;
+
+    // for the odd parameter value that isn't a plain JSON type, e.g. TargetUri
+    private static final Gson gson = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private final Buffer buffer = new Buffer();
+    private JsonWriter writer = newWriter();
+
+    private JsonWriter newWriter() {
+        JsonWriter jsonWriter = new JsonWriter(buffer);
+        // lenient so the same writer can write one request after another
+        jsonWriter.setLenient(true);
+        jsonWriter.setSerializeNulls(true);
+        return jsonWriter;
+    }
+
+    String encode(RelayRequest request) throws IOException {
+        buffer.reset();
+        try {
+            writer.beginObject();
+            writer.name("_type").jsonValue(request.type.jsonValue());
+            writer.name("_id").value(request.id);
+            if (request.target != null) {
+                writer.name("_target");
+                writeValue(request.target);
+            }
+            for (Map.Entry<String, Object> param : request.params) {
+                writer.name(param.getKey());
+                writeValue(param.getValue());
+            }
+            writer.endObject();
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            // the writer is left partway through the request, start over with a fresh one
+            writer = newWriter();
+            throw e;
+        }
+        return buffer.toString();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writer.value(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            writer.value((boolean) (Boolean) value);
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+            writer.endObject();
+        } else if (value instanceof int[]) {
+            writer.beginArray();
+            for (int i : (int[]) value) {
+                writer.value(i);
+            }
+            writer.endArray();
+        } else if (value instanceof Object[]) {
+            writer.beginArray();
+            for (Object o : (Object[]) value) {
+                writeValue(o);
+            }
+            writer.endArray();
+        } else if (value instanceof Iterable) {
+            writer.beginArray();
+            for (Object o : (Iterable<?>) value) {
+                writeValue(o);
+            }
+            writer.endArray();
+        } else {
+            gson.toJson(value, value.getClass(), writer);
+        }
+    }
+
+    // an unsynchronized StringWriter whose storage is kept between requests
+    private static class Buffer extends Writer {
+        private StringBuilder chars = new StringBuilder(256);
+
+        void reset() {
+            if (chars.capacity() > MAX_RETAINED_CHARS) {
+                chars = new StringBuilder(256);
+            } else {
+                chars.setLength(0);
+            }
+        }
+
+        @Override
+        public void write(int c) {
+            chars.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            chars.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            chars.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            chars.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return chars.toString();
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the ids of a session's requests.  Each id is a random per-session
+ * starting point plus a sequence number, written as 16 hex digits like the ids
+ * the SDK has always used, so no two requests in a session ever share an id and
+ * ids rarely repeat across sessions.  Sessions don't share any state, so there is
+ * nothing for their threads to contend on.
+ */
+class RequestIds {
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final long start = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    String next() {
+        return toHex(start + sequence.getAndIncrement());
+    }
+
+    static String toHex(long value) {
+        byte[] digits = new byte[16];
+        for (int i = 15; i >= 0; i--) {
+            digits[i] = HEX_DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+
+}
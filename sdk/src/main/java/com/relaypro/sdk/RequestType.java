@@ -2,7 +2,11 @@
 
 package com.relaypro.sdk;
 
-enum RequestType {
+/**
+ * The types of request a workflow can send to the server, for configuring them
+ * individually, e.g. with {@link Relay#setResponseTimeout(RequestType, java.time.Duration)}.
+ */
+public enum RequestType {
 
     StartInteraction("wf_api_start_interaction_request"),
     EndInteraction("wf_api_end_interaction_request"),
@@ -41,11 +45,16 @@ enum RequestType {
     CreateIncident("wf_api_create_incident_request");
     
     private final String value;
+    private final String jsonValue;     // the value as a JSON string literal, ready to be written out
     public String value() {
         return value;
     }
+    String jsonValue() {
+        return jsonValue;
+    }
 
     RequestType(String value) {
         this.value = value;
+        this.jsonValue = '"' + value + '"';
     }
 }
@@ -0,0 +1,32 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * The pool behind {@link ExecutionMode#SharedPool}.  Sessions are scheduled onto
+ * it by their {@link Worker} whenever their queue goes non-empty.  Callbacks that
+ * block waiting for a response wait on a {@link java.util.concurrent.CompletableFuture},
+ * which tells the pool it is blocked so it can start a compensating thread instead
+ * of starving the other sessions.
+ */
+class SharedWorkerPool {
+
+    private static final ForkJoinPool pool = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("relay-pool-worker-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            true        // FIFO scheduling of sessions, they are never joined
+    );
+
+    static void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+}
@@ -0,0 +1,37 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often something happens: permits accrue at a steady rate up to a
+ * burst, and each use takes one.  Not thread-safe; callers hold their own lock.
+ */
+class TokenBucket {
+
+    private final long nanosPerPermit;      // 0 for no limit
+    private final long burstNanos;
+    private long usedUpToNanos;             // permits accrued up to here have been taken
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.burstNanos = nanosPerPermit * Math.max(1, burst);
+        this.usedUpToNanos = System.nanoTime() - burstNanos;       // starts full
+    }
+
+    // Takes a permit if one is there and returns 0, otherwise returns how long until there is one.
+    long tryAcquire(long nowNanos) {
+        if (nanosPerPermit == 0) {
+            return 0;
+        }
+        long start = Math.max(usedUpToNanos, nowNanos - burstNanos);
+        long next = start + nanosPerPermit;
+        if (next - nowNanos > 0) {
+            return next - nowNanos;
+        }
+        usedUpToNanos = next;
+        return 0;
+    }
+
+}
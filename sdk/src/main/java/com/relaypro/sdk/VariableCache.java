@@ -0,0 +1,137 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A session's copy of its workflow's variables, see {@link VariableCacheMode}.
+ * Values read from the server are kept until the workflow changes them, and in
+ * the write-back mode the names changed since the last flush are tracked too.
+ */
+class VariableCache {
+
+    private final VariableCacheMode mode;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    VariableCache(VariableCacheMode mode) {
+        this.mode = mode;
+    }
+
+    boolean enabled() {
+        return mode != VariableCacheMode.Off;
+    }
+
+    boolean writeBack() {
+        return mode == VariableCacheMode.WriteBack;
+    }
+
+    // The value of the variable, the default if it is known to be unset, or null if the server
+    // has to be asked.
+    String get(String name, String defaultValue) {
+        Entry entry = entries.get(name);
+        if (entry == null || ambiguous(entry, defaultValue)) {
+            return null;
+        }
+        return entry.unset ? defaultValue : entry.text;
+    }
+
+    // as get(), with the value parsed once and kept, rather than on every read
+    Integer getNumber(String name, int defaultValue) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.fetchedDefault != null && !entry.unset && Objects.equals(entry.text, entry.fetchedDefault)
+                && !entry.fetchedDefault.equals(Integer.toString(defaultValue))) {
+            // only checked for a value that equals its default, so most reads need no string
+            return null;
+        }
+        if (entry.unset) {
+            return defaultValue;
+        }
+        if (entry.number == null) {
+            Integer number = Integer.parseInt(entry.text);
+            entries.replace(name, entry, new Entry(entry.text, number, false, entry.fetchedDefault));
+            return number;
+        }
+        return entry.number;
+    }
+
+    // A value the server answered with, null if the variable is unset. The server may also answer
+    // with the default when the variable is unset, so a value that equals the default is only known
+    // for reads with that same default.
+    void fetched(String name, String value, String defaultValue) {
+        Entry fetched = new Entry(value, null, value == null, defaultValue == null ? "" : defaultValue);
+        // a value the workflow has set since the request was sent is newer
+        entries.compute(name, (n, existing) -> existing == null || existing.fetchedDefault != null ? fetched : existing);
+    }
+
+    void set(String name, String value, Integer number) {
+        entries.put(name, new Entry(value, number, false, null));
+        if (writeBack()) {
+            dirty.add(name);
+        }
+    }
+
+    void unset(String name) {
+        entries.put(name, new Entry(null, null, true, null));
+        if (writeBack()) {
+            dirty.add(name);
+        }
+    }
+
+    // forgets the variable, after it was changed behind the cache's back
+    void forget(String name) {
+        entries.remove(name);
+        dirty.remove(name);
+    }
+
+    boolean hasChanges() {
+        return !dirty.isEmpty();
+    }
+
+    // Adds every change since the last flush to the batch, and clears them. A change made while
+    // the flush is going on is left for the next one.
+    void drainChanges(RequestBatch batch) {
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String name = it.next();
+            it.remove();
+            Entry entry = entries.get(name);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.unset) {
+                batch.unsetVar(name);
+            } else {
+                batch.setVar(name, entry.text);
+            }
+        }
+    }
+
+    // whether the variable may be unset, and this read has a different default
+    private static boolean ambiguous(Entry entry, String defaultValue) {
+        return entry.fetchedDefault != null && !entry.unset && Objects.equals(entry.text, entry.fetchedDefault)
+                && !entry.fetchedDefault.equals(defaultValue);
+    }
+
+    private static final class Entry {
+        final String text;
+        final Integer number;               // the text parsed, once it has been read as a number
+        final boolean unset;
+        final String fetchedDefault;        // the default the server was asked with, null if the workflow set it
+
+        Entry(String text, Integer number, boolean unset, String fetchedDefault) {
+            this.text = text;
+            this.number = number;
+            this.unset = unset;
+            this.fetchedDefault = fetchedDefault;
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+/**
+ * Whether a session keeps its own copy of the workflow's variables, and when it
+ * sends changes to them to the server.  Set it with
+ * {@link Relay#setVariableCacheMode(VariableCacheMode)}.  A copy kept by a
+ * session does not see changes made anywhere else, such as by the workflow's
+ * registration, another session or a {@link RequestBatch}, so only turn it on for
+ * variables that the session alone changes.
+ */
+public enum VariableCacheMode {
+
+    /**
+     * Every read and write of a variable is a round trip to the server.  This is
+     * the default.
+     */
+    Off,
+
+    /**
+     * A variable is read from the server the first time it is needed, and from the
+     * session's copy after that.  Writes update the copy and are sent to the server
+     * straight away, waiting for it to acknowledge them.
+     */
+    WriteThrough,
+
+    /**
+     * As {@link #WriteThrough}, except that writes only update the session's copy.
+     * They are sent to the server together by {@link Relay#flushVars()}, which also
+     * happens automatically before {@link Relay#terminate()} and
+     * {@link Relay#endInteraction(String)}, and when the workflow is stopped, after
+     * {@link Workflow#onStop} has returned, so writes made in it are kept too.
+     */
+    WriteBack
+
+}
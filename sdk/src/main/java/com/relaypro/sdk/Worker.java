@@ -6,10 +6,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class Worker implements Callable<String> {
 
+    // how many events a session handles before giving its pool thread to another session
+    private static final int DRAIN_BATCH_SIZE = 32;
+
     private final Relay wrapper;
+
+    // used in the shared pool mode only: whether a drain of this session's queue is scheduled or running
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
     
     private static final Logger logger = LoggerFactory.getLogger(Worker.class);
     
@@ -27,11 +35,10 @@ class Worker implements Callable<String> {
                     // timed out 
                     return null;
                 }
-                else if (msgWrapper.stopped) {
+                else if (!handle(msgWrapper)) {
                     // we've been commanded to shut down, stop looping
                     return null;
                 }
-                RelayUtils.invokeEventCallback(msgWrapper, this.wrapper);
             } catch (InterruptedException e) {
                 logger.error("Interrupted waiting for message", e);
                 break;
@@ -40,4 +47,46 @@ class Worker implements Callable<String> {
 
         return null;
     }
+
+    // Shared pool mode: called after a message was added to the queue. Makes sure exactly one
+    // drain of this session is scheduled, so events are still handled in order and one at a time.
+    void schedule() {
+        if (!stopped && scheduled.compareAndSet(false, true)) {
+            SharedWorkerPool.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                MessageWrapper msgWrapper = this.wrapper.messageQueue.poll();
+                if (msgWrapper == null) {
+                    break;
+                }
+                if (!handle(msgWrapper)) {
+                    stopped = true;
+                    break;
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // a message may have arrived after our last poll but before we cleared the flag,
+            // or we stopped early to let other sessions run
+            if (!stopped && !this.wrapper.messageQueue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private boolean handle(MessageWrapper msgWrapper) {
+        if (msgWrapper.stopped) {
+            this.wrapper.workflowFinished();
+            return false;
+        }
+        RelayUtils.invokeEventCallback(msgWrapper, this.wrapper);
+        if (msgWrapper.eventType == EventType.Stop) {
+            this.wrapper.finishStop(msgWrapper);
+        }
+        return true;
+    }
 }
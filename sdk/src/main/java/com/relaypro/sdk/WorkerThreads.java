@@ -0,0 +1,51 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the executors that run each session's {@link Worker}.
+ */
+class WorkerThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    // null when the runtime has no virtual threads (before Java 21)
+    private static final ThreadFactory virtualThreadFactory = lookupVirtualThreadFactory();
+
+    static ExecutorService newSessionExecutor(ExecutionMode mode) {
+        if (mode == ExecutionMode.VirtualThread) {
+            if (virtualThreadFactory != null) {
+                return Executors.newSingleThreadExecutor(virtualThreadFactory);
+            }
+            logger.warn("Virtual threads are not available on this Java runtime, using a platform thread instead");
+        }
+        return Executors.newSingleThreadExecutor();
+    }
+
+    static boolean virtualThreadsAvailable() {
+        return virtualThreadFactory != null;
+    }
+
+    // Thread.ofVirtual().name("relay-worker-", 0).factory(), looked up reflectively so the SDK
+    // still compiles and runs on runtimes that predate virtual threads
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "relay-worker-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+}
@@ -193,6 +193,16 @@ public abstract class Workflow implements Cloneable {
     public void onPlayInboxMessage(Relay relay, PlayInboxMessagesEvent playInboxMessagesEvent) {
     }
 
+    /**
+     * Clears any state this instance kept from the session it served, so that it can
+     * serve another. Only called for workflows added with a pool, see
+     * {@link Relay#addWorkflow(String, java.util.function.Supplier, int)}, once the
+     * session's last callback has returned. A workflow that keeps no state in its
+     * fields has nothing to clear. If this throws, the instance is not reused.
+     */
+    public void reset() {
+    }
+
     @Override
     public Object clone() throws CloneNotSupportedException {
         return super.clone();
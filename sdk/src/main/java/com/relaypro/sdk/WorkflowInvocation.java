@@ -0,0 +1,97 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One HTTP trigger of a workflow, with the same meaning as the parameters of
+ * {@link Relay#triggerWorkflow(String, String, String, String, String, String, String[], Map)}.
+ * A collection of them is started together with a {@link BulkTrigger}.
+ */
+public class WorkflowInvocation {
+
+    private final String workflowId;
+    private final String subscriberId;
+    private final String userId;
+    private final String[] targets;
+    private final Map<String, String> actionArgs;
+
+    /**
+     * @param workflowId the workflow_id as returned from "relay workflow list".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the target device, such as 990007560023456.
+     * @param targets the device URNs on which you would like to trigger the workflow, or null.
+     * @param actionArgs a Map of any key/value arguments you want to pass in to the workflow, or null.
+     */
+    public WorkflowInvocation(String workflowId, String subscriberId, String userId, String[] targets,
+                              Map<String, String> actionArgs) {
+        this.workflowId = workflowId;
+        this.subscriberId = subscriberId;
+        this.userId = userId;
+        this.targets = targets != null ? targets.clone() : null;
+        this.actionArgs = actionArgs;
+    }
+
+    /**
+     * Returns an invocation of the workflow for each target device, each passed the same arguments.
+     * @param workflowId the workflow_id as returned from "relay workflow list".
+     * @param subscriberId the subscriber UUID as returned from "relay whoami".
+     * @param userId the IMEI of the device triggering the workflows, such as 990007560023456.
+     * @param targets the device URNs to trigger the workflow on, one invocation each.
+     * @param actionArgs a Map of any key/value arguments you want to pass in to the workflows, or null.
+     * @return one invocation per target.
+     */
+    public static List<WorkflowInvocation> forEachTarget(String workflowId, String subscriberId, String userId,
+                                                         Collection<String> targets, Map<String, String> actionArgs) {
+        List<WorkflowInvocation> invocations = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            invocations.add(new WorkflowInvocation(workflowId, subscriberId, userId, new String[] {target}, actionArgs));
+        }
+        return invocations;
+    }
+
+    /**
+     * @return the workflow_id to trigger.
+     */
+    public String getWorkflowId() {
+        return workflowId;
+    }
+
+    /**
+     * @return the subscriber UUID.
+     */
+    public String getSubscriberId() {
+        return subscriberId;
+    }
+
+    /**
+     * @return the IMEI of the device triggering the workflow.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return a copy of the device URNs to trigger the workflow on, or null.
+     */
+    public String[] getTargets() {
+        return targets != null ? targets.clone() : null;
+    }
+
+    /**
+     * @return the arguments passed in to the workflow, or null.
+     */
+    public Map<String, String> getActionArgs() {
+        return actionArgs;
+    }
+
+    @Override
+    public String toString() {
+        return workflowId + (targets != null && targets.length == 1 ? "@" + targets[0] : "");
+    }
+
+}
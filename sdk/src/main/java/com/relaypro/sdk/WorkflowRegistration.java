@@ -0,0 +1,76 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A workflow added with {@link Relay#addWorkflow}: where each session gets its
+ * own instance of the workflow from, and, if pooling is on, the instances that
+ * finished sessions gave back, ready to be handed out again.
+ */
+class WorkflowRegistration {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowRegistration.class);
+
+    private final String name;
+    private final Supplier<? extends Workflow> factory;
+    private final ArrayBlockingQueue<Workflow> pool;        // null if instances are not reused
+
+    WorkflowRegistration(String name, Supplier<? extends Workflow> factory, int poolSize) {
+        this.name = name;
+        this.factory = factory;
+        this.pool = poolSize > 0 ? new ArrayBlockingQueue<>(poolSize) : null;
+    }
+
+    // a registration that gives each session a shallow copy of the prototype
+    static WorkflowRegistration ofPrototype(String name, Workflow prototype) {
+        return new WorkflowRegistration(name, () -> {
+            try {
+                return (Workflow) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("Error cloning workflow", e);
+            }
+        }, 0);
+    }
+
+    // an instance for a new session; throws if the factory fails
+    Workflow acquire() {
+        if (pool != null) {
+            Workflow pooled = pool.poll();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        Workflow workflow = factory.get();
+        if (workflow == null) {
+            throw new IllegalStateException("Factory for workflow " + name + " returned null");
+        }
+        return workflow;
+    }
+
+    // Called once the session's last callback has returned. Resets the instance and keeps it
+    // for another session if there is room in the pool, otherwise leaves it to the garbage collector.
+    void release(Workflow workflow) {
+        if (pool == null) {
+            return;
+        }
+        try {
+            workflow.reset();
+        } catch (RuntimeException e) {
+            logger.error("Error resetting workflow " + name + ", not reusing it", e);
+            return;
+        }
+        pool.offer(workflow);
+    }
+
+    // how many reset instances are waiting for a session
+    int pooled() {
+        return pool != null ? pool.size() : 0;
+    }
+
+}
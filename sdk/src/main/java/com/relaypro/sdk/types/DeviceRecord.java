@@ -0,0 +1,17 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk.types;
+
+/**
+ * A device's record as returned by the device API, see
+ * {@link com.relaypro.sdk.FleetInventory}.  The fields the SDK indexes on are
+ * filled in; everything else the server returned is kept in {@code json}.
+ */
+public class DeviceRecord {
+
+    public String imei;         // the IMEI the record was fetched with
+    public String name;
+    public String[] groups;
+    public String json;
+
+}
@@ -0,0 +1,182 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CallTest {
+
+    private static final MessageWrapper SAY_RESPONSE =
+            MessageWrapper.parseMessage("{\"_type\":\"wf_api_say_response\",\"_id\":\"a\",\"id\":\"prompt\"}");
+    private static final MessageWrapper PROMPT_STOPPED =
+            MessageWrapper.parseMessage("{\"_type\":\"wf_api_prompt_event\",\"id\":\"a\",\"type\":\"stopped\"}");
+    private static final MessageWrapper PROGRESS =
+            MessageWrapper.parseMessage("{\"_type\":\"wf_api_progress_event\",\"_id\":\"a\"}");
+
+    @Test
+    public void completesWithTheResponse() throws Exception {
+        Call<MessageWrapper> call = Call.of(false);
+        call.deliver(SAY_RESPONSE);
+        assertSame(SAY_RESPONSE, call.get());
+    }
+
+    @Test
+    public void waitsForThePromptToEnd() throws Exception {
+        Call<MessageWrapper> call = Call.of(true);
+        call.deliver(PROGRESS);
+        call.deliver(SAY_RESPONSE);
+        assertFalse(call.isDone());
+        call.deliver(PROMPT_STOPPED);
+        assertSame(PROMPT_STOPPED, call.get());
+    }
+
+    @Test
+    public void completesWithTheSpeechAfterAListenResponse() throws Exception {
+        MessageWrapper speech = MessageWrapper.parseMessage("{\"_type\":\"wf_api_speech_event\",\"request_id\":\"a\",\"text\":\"hello\"}");
+        Call<MessageWrapper> call = Call.of(true);
+        call.deliver(MessageWrapper.parseMessage("{\"_type\":\"wf_api_listen_response\",\"_id\":\"a\"}"));
+        assertFalse(call.isDone());
+        call.deliver(speech);
+        assertSame(speech, call.get());
+    }
+
+    @Test
+    public void failsOnAnErrorResponse() {
+        Call<MessageWrapper> call = Call.of(false);
+        call.deliver(MessageWrapper.parseMessage("{\"_type\":\"wf_api_error_response\",\"_id\":\"a\",\"error\":\"nope\"}"));
+        ExecutionException e = assertThrows(ExecutionException.class, call::get);
+        assertTrue(e.getCause() instanceof Call.ErrorResponseException);
+    }
+
+    @Test
+    public void mapsTheResponseOrFallsBack() throws Exception {
+        Call<String> answered = Call.mapped(false, "Error saying", "fallback", response -> response.id);
+        answered.deliver(SAY_RESPONSE);
+        assertEquals("a", answered.get());
+
+        Call<String> timedOut = Call.mapped(false, "Error saying", "fallback", response -> response.id);
+        assertTrue(timedOut.timeout());
+        assertEquals("fallback", timedOut.get());
+    }
+
+    @Test
+    public void timesOutWithATimeoutException() {
+        Call<MessageWrapper> call = Call.of(false);
+        assertTrue(call.timeout());
+        ExecutionException e = assertThrows(ExecutionException.class, call::get);
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertFalse(call.timeout());
+    }
+
+    @Test
+    public void ignoresMessagesOnceCompleted() throws Exception {
+        Call<MessageWrapper> call = Call.of(false);
+        call.fail(new CancellationException("Workflow stopped"));
+        call.deliver(SAY_RESPONSE);
+        assertFalse(call.respond(SAY_RESPONSE));
+        assertTrue(call.isCompletedExceptionally());
+    }
+
+    @Test
+    public void givesUpWhenTheCallerCancels() {
+        AtomicInteger done = new AtomicInteger();
+        Call<MessageWrapper> call = Call.of(false);
+        call.onDone(done::incrementAndGet);
+        assertTrue(call.cancel(false));
+        assertFalse(call.respond(SAY_RESPONSE));
+        assertFalse(call.timeout());
+        assertTrue(call.isCancelled());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void letsOnlyTheFirstOfRacingCompletionsThrough() throws Exception {
+        for (int round = 0; round < 2000; round++) {
+            Call<MessageWrapper> call = Call.of(false);
+            AtomicInteger done = new AtomicInteger();
+            AtomicInteger winners = new AtomicInteger();
+            call.onDone(done::incrementAndGet);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] racers = {
+                    racer(start, winners, () -> call.respond(SAY_RESPONSE)),
+                    racer(start, winners, () -> call.fail(new CancellationException("Workflow stopped"))),
+                    racer(start, winners, call::timeout),
+                    racer(start, winners, () -> call.complete(null)),
+            };
+            start.countDown();
+            for (Thread racer : racers) {
+                racer.join();
+            }
+            assertEquals(1, winners.get(), "winners in round " + round);
+            assertEquals(1, done.get(), "onDone runs in round " + round);
+            assertTrue(call.isDone());
+        }
+    }
+
+    @Test
+    public void pushesTheTimeoutOutOnEachMessage() {
+        Call<MessageWrapper> call = Call.of(false);
+        long start = System.nanoTime();
+        call.setTimeouts(ms(100), 0, false);
+        call.lastActivityNanos = start;
+        assertEquals(start + ms(100), call.expiresAt());
+
+        call.deliver(PROGRESS);
+        assertFalse(call.isDone());
+        assertTrue(call.expiresAt() - (start + ms(100)) >= 0);
+        call.lastActivityNanos = start + ms(500);
+        assertEquals(start + ms(600), call.expiresAt());
+    }
+
+    @Test
+    public void holdsToTheDeadlineHoweverManyProgressMessagesArrive() {
+        Call<MessageWrapper> call = Call.of(false);
+        long start = System.nanoTime();
+        call.setTimeouts(ms(100), start + ms(150), true);
+        call.lastActivityNanos = start;
+        assertEquals(start + ms(100), call.expiresAt());
+
+        // progress within the deadline pushes the timeout out, up to the deadline
+        call.lastActivityNanos = start + ms(20);
+        assertEquals(start + ms(120), call.expiresAt());
+        call.lastActivityNanos = start + ms(80);
+        assertEquals(start + ms(150), call.expiresAt());
+
+        call.deliver(PROGRESS);
+        assertFalse(call.isDone());
+        assertTrue(call.expiresAt() - (start + ms(150)) <= 0);
+    }
+
+    private static Thread racer(CountDownLatch start, AtomicInteger winners, Completion completion) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (completion.complete()) {
+                winners.incrementAndGet();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private interface Completion {
+        boolean complete();
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+}
@@ -0,0 +1,109 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceInfoQueryType;
+import com.relaypro.sdk.types.DeviceInfoResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceInfoCacheTest {
+
+    private static final String DEVICE = "urn:relay-resource:name:device:Alice";
+    private static final String OTHER_DEVICE = "urn:relay-resource:name:device:Bob";
+
+    private final DeviceInfoCache cache = new DeviceInfoCache();
+
+    @Test
+    public void keepsAnAnswerPerDeviceAndQuery() {
+        DeviceInfoResponse name = response("Alice");
+        cache.put(DEVICE, DeviceInfoQueryType.Name, name, cache.generation());
+
+        assertSame(name, cache.get(DEVICE, DeviceInfoQueryType.Name));
+        assertNull(cache.get(DEVICE, DeviceInfoQueryType.Battery));
+        assertNull(cache.get(OTHER_DEVICE, DeviceInfoQueryType.Name));
+    }
+
+    @Test
+    public void dropsAnAnswerToAQuerySentBeforeAnInvalidation() {
+        long sentAt = cache.generation();
+        // the workflow renames a device while the query is out
+        cache.invalidate(DEVICE, DeviceInfoQueryType.Name);
+        cache.put(DEVICE, DeviceInfoQueryType.Name, response("Alice"), sentAt);
+        assertNull(cache.get(DEVICE, DeviceInfoQueryType.Name));
+
+        // as the generation is shared, an answer about another device is dropped too
+        cache.put(OTHER_DEVICE, DeviceInfoQueryType.Name, response("Bob"), sentAt);
+        assertNull(cache.get(OTHER_DEVICE, DeviceInfoQueryType.Name));
+
+        // a query sent after the invalidation is kept
+        DeviceInfoResponse renamed = response("Alicia");
+        cache.put(DEVICE, DeviceInfoQueryType.Name, renamed, cache.generation());
+        assertSame(renamed, cache.get(DEVICE, DeviceInfoQueryType.Name));
+    }
+
+    @Test
+    public void forgetsAnInvalidatedAnswer() {
+        DeviceInfoResponse name = response("Alice");
+        DeviceInfoResponse battery = response("Alice");
+        cache.put(DEVICE, DeviceInfoQueryType.Name, name, cache.generation());
+        cache.put(DEVICE, DeviceInfoQueryType.Battery, battery, cache.generation());
+        cache.put(OTHER_DEVICE, DeviceInfoQueryType.Name, response("Bob"), cache.generation());
+
+        cache.invalidate(DEVICE, DeviceInfoQueryType.Name);
+        assertNull(cache.get(DEVICE, DeviceInfoQueryType.Name));
+        assertSame(battery, cache.get(DEVICE, DeviceInfoQueryType.Battery));
+
+        cache.invalidate(DEVICE);
+        assertNull(cache.get(DEVICE, DeviceInfoQueryType.Battery));
+        assertEquals("Bob", cache.get(OTHER_DEVICE, DeviceInfoQueryType.Name).name);
+    }
+
+    @Test
+    public void keepsNothingForAQueryWithoutATtl() {
+        long ttl = DeviceInfoCache.ttlNanos.get(DeviceInfoQueryType.Battery.ordinal());
+        DeviceInfoCache.ttlNanos.set(DeviceInfoQueryType.Battery.ordinal(), 0);
+        try {
+            cache.put(DEVICE, DeviceInfoQueryType.Battery, response("Alice"), cache.generation());
+            assertNull(cache.get(DEVICE, DeviceInfoQueryType.Battery));
+        } finally {
+            DeviceInfoCache.ttlNanos.set(DeviceInfoQueryType.Battery.ordinal(), ttl);
+        }
+    }
+
+    @Test
+    public void forgetsAnAnswerOnceStale() throws InterruptedException {
+        long ttl = DeviceInfoCache.ttlNanos.get(DeviceInfoQueryType.Address.ordinal());
+        DeviceInfoCache.ttlNanos.set(DeviceInfoQueryType.Address.ordinal(), 1_000_000);
+        try {
+            cache.put(DEVICE, DeviceInfoQueryType.Address, response("Alice"), cache.generation());
+            Thread.sleep(20);
+            assertNull(cache.get(DEVICE, DeviceInfoQueryType.Address));
+        } finally {
+            DeviceInfoCache.ttlNanos.set(DeviceInfoQueryType.Address.ordinal(), ttl);
+        }
+    }
+
+    @Test
+    public void copiesTheFieldAQueryAsksFor() {
+        DeviceInfoResponse from = response("Alice");
+        from.battery = 80;
+        from.latlong = new double[] {35.78, -78.64};
+        DeviceInfoResponse to = new DeviceInfoResponse();
+
+        DeviceInfoCache.copyField(DeviceInfoQueryType.Battery, from, to);
+        DeviceInfoCache.copyField(DeviceInfoQueryType.LatLong, from, to);
+        assertEquals(80, (int) to.battery);
+        assertArrayEquals(from.latlong, to.latlong);
+        assertNotSame(from.latlong, to.latlong);
+        assertNull(to.name);
+    }
+
+    private static DeviceInfoResponse response(String name) {
+        DeviceInfoResponse response = new DeviceInfoResponse();
+        response.name = name;
+        return response;
+    }
+
+}
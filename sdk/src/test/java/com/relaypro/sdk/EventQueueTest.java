@@ -0,0 +1,143 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventQueueTest {
+
+    @Test
+    public void handsEventsOverInOrder() throws InterruptedException {
+        EventQueue queue = new EventQueue(4, EventQueueOverflowPolicy.Block, new EventQueue.Stats());
+        MessageWrapper button = event("button");
+        MessageWrapper timer = event("timer");
+        assertTrue(queue.put(button));
+        assertTrue(queue.put(timer));
+        assertEquals(2, queue.size());
+        assertSame(button, queue.take());
+        assertSame(timer, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void blocksTheReaderUntilThereIsRoom() throws Exception {
+        EventQueue.Stats stats = new EventQueue.Stats();
+        EventQueue queue = new EventQueue(2, EventQueueOverflowPolicy.Block, stats);
+        queue.put(event("button"));
+        queue.put(event("button"));
+
+        CompletableFuture<Boolean> put = CompletableFuture.supplyAsync(() -> queue.put(event("call_connected")));
+        assertStillWaiting(put);
+        queue.take();
+        assertTrue(put.get(5, TimeUnit.SECONDS));
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.dropped());
+        assertEquals(2, stats.highWaterMark());
+    }
+
+    @Test
+    public void dropsTheOldestQueuedEventOfTheSameType() throws InterruptedException {
+        EventQueue.Stats stats = new EventQueue.Stats();
+        EventQueue queue = new EventQueue(3, EventQueueOverflowPolicy.DropOldest, stats);
+        MessageWrapper firstButton = event("button");
+        MessageWrapper firstTimer = event("timer");
+        MessageWrapper secondButton = event("button");
+        MessageWrapper secondTimer = event("timer");
+        queue.put(firstButton);
+        queue.put(firstTimer);
+        queue.put(secondButton);
+
+        // the timer makes room by dropping the queued timer, not the older button
+        assertTrue(queue.put(secondTimer));
+        assertSame(firstButton, queue.take());
+        assertSame(secondButton, queue.take());
+        assertSame(secondTimer, queue.take());
+        assertEquals(1, queue.dropped());
+        assertEquals(1, stats.dropped());
+    }
+
+    @Test
+    public void blocksAnEventWithNoQueuedEventOfItsType() throws Exception {
+        EventQueue queue = new EventQueue(2, EventQueueOverflowPolicy.DropOldest, new EventQueue.Stats());
+        queue.put(event("button"));
+        queue.put(event("button"));
+
+        CompletableFuture<Boolean> prompt = CompletableFuture.supplyAsync(() -> queue.put(event("prompt")));
+        assertStillWaiting(prompt);
+        queue.take();
+        assertTrue(prompt.get(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.dropped());
+    }
+
+    @Test
+    public void blocksAnEventOfATypeThatMustNotBeDropped() throws Exception {
+        EventQueue queue = new EventQueue(2, EventQueueOverflowPolicy.DropOldest, new EventQueue.Stats());
+        queue.put(event("call_connected"));
+        queue.put(event("call_connected"));
+
+        CompletableFuture<Boolean> put = CompletableFuture.supplyAsync(() -> queue.put(event("call_connected")));
+        assertStillWaiting(put);
+        queue.take();
+        assertTrue(put.get(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.dropped());
+    }
+
+    @Test
+    public void failsTheSessionWhenFull() {
+        EventQueue.Stats stats = new EventQueue.Stats();
+        EventQueue queue = new EventQueue(2, EventQueueOverflowPolicy.FailSession, stats);
+        assertTrue(queue.put(event("button")));
+        assertTrue(queue.put(event("button")));
+        assertFalse(queue.put(event("button")));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.dropped());
+        assertEquals(1, stats.dropped());
+    }
+
+    @Test
+    public void alwaysLetsTheStopMessageIn() throws Exception {
+        EventQueue queue = new EventQueue(1, EventQueueOverflowPolicy.Block, new EventQueue.Stats());
+        queue.put(event("button"));
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> queue.put(event("call_connected")));
+        assertStillWaiting(blocked);
+
+        MessageWrapper stop = MessageWrapper.stopMessage();
+        assertTrue(queue.put(stop));
+        // the reader waiting for room gives up, and nothing more is queued
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(queue.put(event("button")));
+        assertEquals(2, queue.size());
+        queue.take();
+        assertSame(stop, queue.take());
+    }
+
+    @Test
+    public void keepsTheHighestSizeOfAnySessionOfTheWorkflow() {
+        EventQueue.Stats stats = new EventQueue.Stats();
+        EventQueue first = new EventQueue(10, EventQueueOverflowPolicy.Block, stats);
+        EventQueue second = new EventQueue(10, EventQueueOverflowPolicy.Block, stats);
+        for (int i = 0; i < 3; i++) {
+            first.put(event("button"));
+        }
+        second.put(event("button"));
+        assertEquals(3, first.highWaterMark());
+        assertEquals(1, second.highWaterMark());
+        assertEquals(3, stats.highWaterMark());
+    }
+
+    private static MessageWrapper event(String type) {
+        return MessageWrapper.parseMessage("{\"_type\":\"wf_api_" + type + "_event\"}");
+    }
+
+    private static void assertStillWaiting(CompletableFuture<Boolean> put) throws Exception {
+        assertThrows(TimeoutException.class, () -> put.get(100, TimeUnit.MILLISECONDS));
+    }
+
+}
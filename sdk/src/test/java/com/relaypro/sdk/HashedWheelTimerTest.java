@@ -0,0 +1,99 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedWheelTimerTest {
+
+    // a turn of the wheel is 8 ticks of 10ms
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+
+    @Test
+    public void runsATaskOnceItsDelayHasPassed() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        AtomicLong ranAfter = new AtomicLong();
+        timer.schedule(() -> {
+            ranAfter.set(System.nanoTime() - start);
+            ran.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(ranAfter.get() >= TimeUnit.MILLISECONDS.toNanos(50), "ran after " + ranAfter.get() + "ns");
+    }
+
+    @Test
+    public void waitsOutDelaysLongerThanATurnOfTheWheel() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        AtomicLong ranAfter = new AtomicLong();
+        timer.schedule(() -> {
+            ranAfter.set(System.nanoTime() - start);
+            ran.countDown();
+        }, 250, TimeUnit.MILLISECONDS);
+
+        // three turns and a bit: would come round after 10ms if the remaining turns were ignored
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(ranAfter.get() >= TimeUnit.MILLISECONDS.toNanos(250), "ran after " + ranAfter.get() + "ns");
+    }
+
+    @Test
+    public void neverRunsACancelledTask() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        HashedWheelTimer.Timeout longCancelled = timer.schedule(runs::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+        CountDownLatch later = new CountDownLatch(1);
+        timer.schedule(later::countDown, 300, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        Thread.sleep(100);
+        // cancelled once the timer thread has taken it onto the wheel
+        assertTrue(longCancelled.cancel());
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void cannotCancelATaskThatHasRun() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout = timer.schedule(ran::countDown, 10, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void runsEveryTaskOfABurst() throws InterruptedException {
+        int tasks = 10000;
+        CountDownLatch ran = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            timer.schedule(ran::countDown, i % 300, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void keepsGoingAfterATaskThrows() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new IllegalStateException("task failed");
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.schedule(ran::countDown, 40, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void wantsAWheelOfAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 10));
+    }
+
+}
@@ -0,0 +1,119 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTest {
+
+    private static final long LARGEST_TRACKED = (1L << 40) - 1;
+
+    @Test
+    public void givesSmallValuesABucketEach() {
+        for (int value = 0; value < 8; value++) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.highestValueIn(value));
+        }
+    }
+
+    @Test
+    public void placesEachValueInTheBucketThatEndsAtOrAboveIt() {
+        for (long value = 0; value < 1 << 16; value++) {
+            checkBucketOf(value);
+        }
+        for (int bit = 16; bit < 40; bit++) {
+            long power = 1L << bit;
+            checkBucketOf(power - 1);
+            checkBucketOf(power);
+            checkBucketOf(power + 1);
+            checkBucketOf(power + power / 3);
+        }
+        checkBucketOf(LARGEST_TRACKED);
+    }
+
+    @Test
+    public void coversEveryValueWithContiguousBuckets() {
+        for (int bucket = 1; bucket < Histogram.BUCKETS; bucket++) {
+            long lowest = Histogram.highestValueIn(bucket - 1) + 1;
+            assertEquals(bucket, Histogram.bucketOf(lowest));
+            assertEquals(bucket, Histogram.bucketOf(Histogram.highestValueIn(bucket)));
+        }
+        assertEquals(LARGEST_TRACKED, Histogram.highestValueIn(Histogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void putsValuesTooLargeToTrackInTheLastBucket() {
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(LARGEST_TRACKED + 1));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void readsOffPercentilesToWithinAnEighth() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean(), 0.001);
+        assertEquals(1000000, histogram.getMax());
+        assertWithinAnEighth(500000, histogram.getValueAtPercentile(50));
+        assertWithinAnEighth(990000, histogram.getValueAtPercentile(99));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void countsNegativeValuesAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void forgetsValuesOnReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void keepsValuesRecordedFromManyThreads() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            long value = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(value);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, histogram.getCount());
+        assertEquals(4.5, histogram.getMean(), 0.001);
+        assertEquals(8, histogram.getMax());
+    }
+
+    private static void checkBucketOf(long value) {
+        int bucket = Histogram.bucketOf(value);
+        assertTrue(bucket >= 0 && bucket < Histogram.BUCKETS, "bucket " + bucket + " of " + value);
+        assertTrue(Histogram.highestValueIn(bucket) >= value, "bucket " + bucket + " ends below " + value);
+        assertTrue(bucket == 0 || Histogram.highestValueIn(bucket - 1) < value, "bucket before " + bucket + " holds " + value);
+        assertTrue(Histogram.highestValueIn(bucket) - value <= value / 8, "bucket " + bucket + " too wide for " + value);
+    }
+
+    private static void assertWithinAnEighth(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 8, "expected about " + expected + " but was " + actual);
+    }
+
+}
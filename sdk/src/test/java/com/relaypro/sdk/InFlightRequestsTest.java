@@ -0,0 +1,143 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InFlightRequestsTest {
+
+    private final InFlightRequests inFlight = new InFlightRequests();
+    private final List<CompletableFuture<String>> sent = new ArrayList<>();
+
+    @Test
+    public void sharesTheAnswerOfTheSameQueryInFlight() throws Exception {
+        CompletableFuture<String> first = get("count");
+        CompletableFuture<String> second = get("count");
+        assertEquals(1, sent.size());
+        assertEquals(1, inFlight.coalesced());
+
+        sent.get(0).complete("42");
+        assertEquals("42", first.get());
+        assertEquals("42", second.get());
+    }
+
+    @Test
+    public void sendsDifferentQueriesSeparately() {
+        get("count");
+        get("total");
+        assertEquals(2, sent.size());
+        assertEquals(0, inFlight.coalesced());
+    }
+
+    @Test
+    public void asksAgainOnceTheAnswerHasArrived() {
+        get("count");
+        sent.get(0).complete("42");
+        get("count");
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void sharesAFailure() {
+        CompletableFuture<String> first = get("count");
+        CompletableFuture<String> second = get("count");
+        sent.get(0).completeExceptionally(new IllegalStateException("no answer"));
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+
+        // and the next caller asks again
+        get("count");
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void letsOneCallerCancelWithoutTheOthers() throws Exception {
+        CompletableFuture<String> first = get("count");
+        CompletableFuture<String> second = get("count");
+        first.cancel(false);
+        sent.get(0).complete("42");
+        assertTrue(first.isCancelled());
+        assertEquals("42", second.get());
+    }
+
+    @Test
+    public void sendsAnewOnceForgotten() throws Exception {
+        CompletableFuture<String> before = get("count");
+        inFlight.forget(RequestType.GetVar, "count", null, null);
+        CompletableFuture<String> after = get("count");
+        assertEquals(2, sent.size());
+
+        // the old request's answer does not take the new one out of flight
+        sent.get(0).complete("old");
+        CompletableFuture<String> later = get("count");
+        assertEquals(2, sent.size());
+
+        sent.get(1).complete("new");
+        assertEquals("old", before.get());
+        assertEquals("new", after.get());
+        assertEquals("new", later.get());
+    }
+
+    @Test
+    public void failsTheCallerIfSendingThrows() {
+        CompletableFuture<String> failed = inFlight.coalesce(RequestType.GetVar, "count", null, null, () -> {
+            throw new IllegalStateException("not sent");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        get("count");
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void sendsOnceForCallersRacingToAsk() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            InFlightRequests requests = new InFlightRequests();
+            AtomicInteger sends = new AtomicInteger();
+            CompletableFuture<String> answer = new CompletableFuture<>();
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<CompletableFuture<String>>> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callers.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return requests.coalesce(RequestType.GetVar, "count", null, null, () -> {
+                        sends.incrementAndGet();
+                        return answer;
+                    });
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<String>> answers = new ArrayList<>();
+            for (CompletableFuture<CompletableFuture<String>> caller : callers) {
+                answers.add(caller.get(5, TimeUnit.SECONDS));
+            }
+            answer.complete("42");
+            assertEquals(1, sends.get(), "sends in round " + round);
+            for (CompletableFuture<String> callerAnswer : answers) {
+                assertEquals("42", callerAnswer.get());
+            }
+        }
+    }
+
+    private CompletableFuture<String> get(String name) {
+        return inFlight.coalesce(RequestType.GetVar, name, null, null, () -> {
+            CompletableFuture<String> request = new CompletableFuture<>();
+            sent.add(request);
+            return request;
+        });
+    }
+
+}
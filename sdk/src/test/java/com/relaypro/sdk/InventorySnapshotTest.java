@@ -0,0 +1,170 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import com.relaypro.sdk.types.DeviceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventorySnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(
+                record("990007560023456", "Alice", new String[] {"Cleaners", "Night Shift"}, "{\"battery\":80}"),
+                record("990007560023457", "Bob", new String[] {"Cleaners"}, "{\"battery\":20}")));
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.writtenAtMillis() > 0);
+
+        DeviceRecord alice = snapshot.get("990007560023456");
+        assertEquals("990007560023456", alice.imei);
+        assertEquals("Alice", alice.name);
+        assertArrayEquals(new String[] {"Cleaners", "Night Shift"}, alice.groups);
+        assertEquals("{\"battery\":80}", alice.json);
+
+        assertEquals("990007560023457", snapshot.findByName("Bob").imei);
+        assertEquals(2, snapshot.getGroupMembers("Cleaners").size());
+        assertEquals("Alice", snapshot.getGroupMembers("Night Shift").get(0).name);
+        assertEquals(Arrays.asList("990007560023456", "990007560023457"), snapshot.imeis());
+        assertEquals(2, snapshot.records().size());
+
+        assertNull(snapshot.get("990007560023458"));
+        assertNull(snapshot.findByName("Carol"));
+        assertTrue(snapshot.getGroupMembers("Day Shift").isEmpty());
+    }
+
+    @Test
+    public void findsKeysWhoseHashesCollide() throws IOException {
+        // "Aa" and "BB" have the same hash code, so must share a probe sequence
+        List<DeviceRecord> records = new ArrayList<>();
+        records.add(record("Aa", "AaAa", new String[] {"Aa"}, null));
+        records.add(record("BB", "BBBB", new String[] {"BB"}, null));
+        records.add(record("AaBB", "BBAa", new String[] {"Aa", "BB"}, null));
+        for (int i = 0; i < 1000; i++) {
+            records.add(record("imei-" + i, "device " + i, new String[] {"group " + (i % 10)}, "{}"));
+        }
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, records);
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        assertEquals("AaAa", snapshot.get("Aa").name);
+        assertEquals("BBBB", snapshot.get("BB").name);
+        assertEquals("AaBB", snapshot.findByName("BBAa").imei);
+        assertEquals("Aa", snapshot.findByName("AaAa").imei);
+        assertEquals(2, snapshot.getGroupMembers("Aa").size());
+        assertEquals(2, snapshot.getGroupMembers("BB").size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("device " + i, snapshot.get("imei-" + i).name);
+            assertEquals("imei-" + i, snapshot.findByName("device " + i).imei);
+        }
+        assertEquals(100, snapshot.getGroupMembers("group 3").size());
+    }
+
+    @Test
+    public void keepsDevicesWithoutNames() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(
+                record("990007560023456", null, new String[] {"Cleaners"}, null),
+                record("990007560023457", "Bob", null, "{}")));
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        DeviceRecord unnamed = snapshot.get("990007560023456");
+        assertNull(unnamed.name);
+        assertNull(unnamed.json);
+        assertEquals("990007560023456", snapshot.getGroupMembers("Cleaners").get(0).imei);
+        assertEquals("990007560023457", snapshot.findByName("Bob").imei);
+    }
+
+    @Test
+    public void readsDevicesWithoutGroups() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(
+                record("990007560023456", "Alice", new String[0], "{}"),
+                record("990007560023457", "Bob", null, "{}")));
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        assertEquals(0, snapshot.get("990007560023456").groups.length);
+        assertEquals(0, snapshot.get("990007560023457").groups.length);
+        assertTrue(snapshot.getGroupMembers("").isEmpty());
+    }
+
+    @Test
+    public void readsAnEmptySnapshot() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, new ArrayList<>());
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        assertEquals(0, snapshot.size());
+        assertNull(snapshot.get("990007560023456"));
+        assertTrue(snapshot.records().isEmpty());
+    }
+
+    @Test
+    public void refusesToOpenATruncatedFile() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(record("990007560023456", "Alice", new String[] {"Cleaners"}, "{}")));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertThrows(IOException.class, () -> InventorySnapshot.open(file));
+    }
+
+    @Test
+    public void refusesToOpenATableOfBadCapacity() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(record("990007560023456", "Alice", new String[] {"Cleaners"}, "{}")));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(buffer.getInt(12), 3);
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> InventorySnapshot.open(file));
+    }
+
+    @Test
+    public void dropsASnapshotWithACorruptRecord() throws IOException {
+        Path file = dir.resolve("inventory");
+        InventorySnapshot.write(file, Arrays.asList(
+                record("990007560023456", "Alice", new String[] {"Cleaners"}, "{}"),
+                record("990007560023457", "Bob", new String[] {"Cleaners"}, "{}")));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        // the first record's name, just after its IMEI, now claims to run past the end of the file
+        buffer.putInt(32 + 4 + "990007560023456".length(), Integer.MAX_VALUE);
+        Files.write(file, bytes);
+
+        InventorySnapshot snapshot = InventorySnapshot.open(file);
+        assertNull(snapshot.get("990007560023456"));
+        // once found corrupt, the snapshot answers nothing, not even for the intact record
+        assertNull(snapshot.get("990007560023457"));
+        assertTrue(snapshot.getGroupMembers("Cleaners").isEmpty());
+        assertTrue(snapshot.records().isEmpty());
+        assertTrue(snapshot.imeis().isEmpty());
+    }
+
+    private static DeviceRecord record(String imei, String name, String[] groups, String json) {
+        DeviceRecord record = new DeviceRecord();
+        record.imei = imei;
+        record.name = name;
+        record.groups = groups;
+        record.json = json;
+        return record;
+    }
+
+}
@@ -0,0 +1,89 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingRequestsTest {
+
+    @Test
+    public void turnsAwayCallsOverTheCap() {
+        PendingRequests pending = new PendingRequests();
+        Call<MessageWrapper> first = Call.of(false);
+        assertTrue(pending.add("a", first, 2));
+        assertTrue(pending.add("b", Call.of(false), 2));
+        assertFalse(pending.add("c", Call.of(false), 2));
+        assertEquals(2, pending.size());
+
+        // completing a call, however it completes, makes room for another
+        first.timeout();
+        assertEquals(1, pending.size());
+        assertTrue(pending.add("c", Call.of(false), 2));
+        assertEquals(2, pending.size());
+    }
+
+    @Test
+    public void findsTheCallInFlightForAnId() {
+        PendingRequests pending = new PendingRequests();
+        Call<MessageWrapper> call = Call.of(false);
+        pending.add("a", call, 10);
+        assertSame(call, pending.get("a"));
+        assertEquals(0, pending.lateResponses());
+        assertEquals(0, pending.orphanedResponses());
+    }
+
+    @Test
+    public void countsMessagesForCompletedCallsAsLate() {
+        PendingRequests pending = new PendingRequests();
+        Call<MessageWrapper> call = Call.of(false);
+        pending.add("a", call, 10);
+        call.respond(MessageWrapper.parseMessage("{\"_type\":\"wf_api_say_response\",\"_id\":\"a\"}"));
+
+        assertNull(pending.get("a"));
+        assertEquals(1, pending.lateResponses());
+        assertEquals(0, pending.orphanedResponses());
+    }
+
+    @Test
+    public void countsMessagesForUnknownIdsAsOrphaned() {
+        PendingRequests pending = new PendingRequests();
+        assertNull(pending.get("never-sent"));
+        assertEquals(0, pending.lateResponses());
+        assertEquals(1, pending.orphanedResponses());
+    }
+
+    @Test
+    public void forgetsCompletedIdsOnceManyMoreHaveCompleted() {
+        PendingRequests pending = new PendingRequests();
+        for (int i = 0; i < 1000; i++) {
+            Call<MessageWrapper> call = Call.of(false);
+            pending.add("id-" + i, call, 10);
+            call.timeout();
+        }
+        assertNull(pending.get("id-999"));
+        assertEquals(1, pending.lateResponses());
+        assertNull(pending.get("id-0"));
+        assertEquals(1, pending.orphanedResponses());
+    }
+
+    @Test
+    public void expiresCallsPastTheirTimeout() {
+        PendingRequests pending = new PendingRequests();
+        Call<MessageWrapper> expiring = Call.of(false);
+        expiring.setTimeouts(TimeUnit.MILLISECONDS.toNanos(10), 0, false);
+        Call<MessageWrapper> waiting = Call.of(false);
+        waiting.setTimeouts(TimeUnit.HOURS.toNanos(1), 0, false);
+        pending.add("expiring", expiring, 10);
+        pending.add("waiting", waiting, 10);
+
+        assertEquals(1, pending.expire(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)));
+        assertTrue(expiring.isCompletedExceptionally());
+        assertFalse(waiting.isDone());
+        assertEquals(1, pending.size());
+    }
+
+}
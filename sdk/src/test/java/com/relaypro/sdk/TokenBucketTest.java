@@ -0,0 +1,78 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void startsWithAFullBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    @Test
+    public void saysHowLongUntilTheNextPermit() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+        assertEquals(0, bucket.tryAcquire(now));
+        long wait = bucket.tryAcquire(now);
+        assertEquals(SECOND / 10, wait);
+        assertEquals(SECOND / 10 - SECOND / 40, bucket.tryAcquire(now + SECOND / 40));
+        assertEquals(0, bucket.tryAcquire(now + wait));
+        assertTrue(bucket.tryAcquire(now + wait) > 0);
+    }
+
+    @Test
+    public void accruesPermitsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        long now = System.nanoTime();
+        int taken = 0;
+        for (long t = now; t < now + SECOND; t += SECOND / 1000) {
+            if (bucket.tryAcquire(t) == 0) {
+                taken++;
+            }
+        }
+        // the one there at the start, then one every 10ms
+        assertEquals(100, taken);
+    }
+
+    @Test
+    public void accruesNoMoreThanABurstWhileIdle() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long later = System.nanoTime() + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    public void allowsABurstOfOneWhenAskedForLess() {
+        TokenBucket bucket = new TokenBucket(10, 0);
+        long now = System.nanoTime();
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    @Test
+    public void neverLimitsWithoutARate() {
+        TokenBucket bucket = new TokenBucket(0, 1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+// Copyright © 2022 Relay Inc.
+
+package com.relaypro.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VariableCacheTest {
+
+    @Test
+    public void answersFromWhatTheServerSaid() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteThrough);
+        assertNull(cache.get("count", ""));
+
+        cache.fetched("count", "3", "");
+        cache.fetched("missing", null, "");
+        assertEquals("3", cache.get("count", ""));
+        assertEquals(3, (int) cache.getNumber("count", 0));
+        assertEquals("none", cache.get("missing", "none"));
+        assertEquals(7, (int) cache.getNumber("missing", 7));
+    }
+
+    @Test
+    public void asksAgainWhenTheAnswerMayHaveBeenTheDefault() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteThrough);
+        // the server answers with the default when the variable is unset
+        cache.fetched("count", "0", "0");
+
+        assertEquals("0", cache.get("count", "0"));
+        assertEquals(0, (int) cache.getNumber("count", 0));
+        assertNull(cache.get("count", "5"));
+        assertNull(cache.getNumber("count", 5));
+    }
+
+    @Test
+    public void keepsWhatTheWorkflowSetOverAnOlderAnswer() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteThrough);
+        cache.set("count", "4", 4);
+        cache.fetched("count", "3", "");
+
+        assertEquals("4", cache.get("count", ""));
+        assertEquals("4", cache.get("count", "4"));
+        assertEquals(4, (int) cache.getNumber("count", 0));
+        assertFalse(cache.hasChanges());
+    }
+
+    @Test
+    public void sendsChangesOnlyWhenDrained() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteBack);
+        cache.set("count", "4", 4);
+        cache.set("name", "first", null);
+        cache.set("name", "second", null);
+        cache.unset("flag");
+        assertTrue(cache.hasChanges());
+
+        List<String> sent = drain(cache);
+        assertEquals(3, sent.size());
+        assertTrue(sent.contains("wf_api_set_var_request count=4"));
+        assertTrue(sent.contains("wf_api_set_var_request name=second"));
+        assertTrue(sent.contains("wf_api_unset_var_request flag"));
+
+        // the copy is kept, and there is nothing left to send
+        assertFalse(cache.hasChanges());
+        assertTrue(drain(cache).isEmpty());
+        assertEquals("second", cache.get("name", ""));
+        assertEquals("none", cache.get("flag", "none"));
+    }
+
+    @Test
+    public void leavesLaterChangesForTheNextDrain() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteBack);
+        cache.set("count", "1", 1);
+        assertEquals(Arrays.asList("wf_api_set_var_request count=1"), drain(cache));
+
+        cache.set("count", "2", 2);
+        assertTrue(cache.hasChanges());
+        assertEquals(Arrays.asList("wf_api_set_var_request count=2"), drain(cache));
+    }
+
+    @Test
+    public void forgetsAVariableAndItsChange() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteBack);
+        cache.set("count", "4", 4);
+        cache.set("name", "Alice", null);
+
+        cache.forget("count");
+        assertNull(cache.get("count", ""));
+        assertNull(cache.getNumber("count", 0));
+        assertEquals(Arrays.asList("wf_api_set_var_request name=Alice"), drain(cache));
+
+        // once forgotten, an answer from the server is taken again
+        cache.fetched("count", "9", "");
+        assertEquals("9", cache.get("count", ""));
+    }
+
+    @Test
+    public void tracksNoChangesUnlessWritingBack() {
+        VariableCache cache = new VariableCache(VariableCacheMode.WriteThrough);
+        cache.set("count", "4", 4);
+        cache.unset("flag");
+
+        assertFalse(cache.hasChanges());
+        assertTrue(drain(cache).isEmpty());
+        assertTrue(cache.enabled());
+        assertFalse(cache.writeBack());
+        assertFalse(new VariableCache(VariableCacheMode.Off).enabled());
+    }
+
+    // each request drained, as its type and the values of its params
+    private static List<String> drain(VariableCache cache) {
+        RequestBatch batch = new RequestBatch();
+        cache.drainChanges(batch);
+        List<String> sent = new ArrayList<>();
+        for (RelayRequest request : batch.requests) {
+            StringBuilder text = new StringBuilder(request.type.value());
+            for (int i = 0; i < request.params.length; i++) {
+                Map.Entry<String, Object> param = request.params[i];
+                text.append(i == 0 ? " " : "=").append(param.getValue());
+            }
+            sent.add(text.toString());
+        }
+        return sent;
+    }
+
+}